@@ -0,0 +1,60 @@
+package snakes.bench;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class implements one benchmark: a piece of work that {@link BenchmarkRunner}
+ * repeats to measure the average time it takes.
+ * <p>
+ * {@link #run(int)} returns a value computed from the work, which the runner consumes,
+ * so the JIT compiler cannot remove the work as dead code. State that the work needs
+ * is prepared in {@link #setUp()}, outside the measurement
+ */
+public abstract class Benchmark {
+    public final String name;
+    public final TimeUnit unit; // unit of the reported time per operation
+
+    /**
+     * @param name name of the benchmark, "group.benchmark"
+     * @param unit unit of the reported time per operation
+     */
+    protected Benchmark(String name, TimeUnit unit) {
+        this.name = name;
+        this.unit = unit;
+    }
+
+    /**
+     * Prepare the state of the benchmark, before its first iteration
+     *
+     * @throws Exception if the state cannot be prepared
+     */
+    public void setUp() throws Exception {
+    }
+
+    /**
+     * Perform the work a number of times
+     *
+     * @param operations number of times to perform the work
+     * @return a value depending on the work
+     * @throws Exception if the work fails
+     */
+    public abstract long run(int operations) throws Exception;
+
+    /**
+     * Report metrics other than the time per operation after an iteration, such as
+     * nodes searched per second; the metrics of warm-up iterations are discarded
+     *
+     * @param metrics    metrics of the iteration by their unit, e.g. "nodes/s"
+     * @param nanos      duration of the iteration
+     * @param operations number of operations in the iteration
+     */
+    public void secondaryMetrics(Map<String, Double> metrics, long nanos, long operations) {
+    }
+
+    /**
+     * Release the state of the benchmark, after its last iteration
+     */
+    public void tearDown() {
+    }
+}
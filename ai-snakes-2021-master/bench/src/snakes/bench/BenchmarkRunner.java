@@ -0,0 +1,489 @@
+package snakes.bench;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * This class is responsible for running the benchmarks and writing their results.
+ * <p>
+ * Every benchmark is run for a number of warm-up iterations, so the JIT compiler
+ * reaches its steady state, and then for a number of measured iterations of fixed
+ * duration. The score of a benchmark is the average time per operation, with the
+ * half-width of its 99.9% confidence interval as error. The results are printed as
+ * a table and written as JSON in the layout of JMH, so they can be tracked over time
+ * with the same tools.
+ * <p>
+ * Like JMH, every benchmark is run in JVMs of its own, forked with {@link ProcessBuilder}
+ * the way {@link snakes.WorkerPool} starts its workers, so the code compiled and the
+ * garbage left by one benchmark do not change the scores of the next ones. A forked JVM
+ * sends its scores back over its standard output, and prints its progress to the standard
+ * error. The scores of all forks of a benchmark make up its result
+ */
+public class BenchmarkRunner {
+    private static final double Z_999 = 3.2905; // quantile of the normal distribution for a 99.9% interval
+
+    private static volatile long sink; // consumes the values of the benchmarks
+
+    private int warmupIterations = 5;
+    private int measurementIterations = 10;
+    private long iterationMillis = 1000;
+    private int forks = 1; // JVMs every benchmark is run in, 0 to run it in this JVM
+    private long iterationOperations; // operations performed in the last iteration
+
+    /**
+     * Measured results of one benchmark, the scores of every fork one after another
+     */
+    private static class Result {
+        final Benchmark benchmark;
+        final double[] scores;
+        final Map<String, double[]> secondary = new LinkedHashMap<>();
+
+        Result(Benchmark benchmark, int iterations) {
+            this.benchmark = benchmark;
+            this.scores = new double[iterations];
+        }
+
+        /**
+         * Send the scores to the JVM that forked this one
+         *
+         * @param out standard output of this JVM
+         * @throws IOException if the output breaks
+         */
+        void write(DataOutputStream out) throws IOException {
+            writeValues(out, scores);
+            out.writeInt(secondary.size());
+            for (Map.Entry<String, double[]> e : secondary.entrySet()) {
+                out.writeUTF(e.getKey());
+                writeValues(out, e.getValue());
+            }
+            out.flush();
+        }
+
+        /**
+         * Read the scores of a fork into their place among the scores of all forks
+         *
+         * @param in     standard output of the forked JVM
+         * @param offset index of the first score of the fork
+         * @throws IOException if the output breaks, or does not hold the scores of one fork
+         */
+        void read(DataInputStream in, int offset) throws IOException {
+            readValues(in, scores, offset);
+            int metrics = in.readInt();
+            for (int i = 0; i < metrics; i++) {
+                String unit = in.readUTF();
+                double[] values = secondary.get(unit);
+                if (values == null)
+                    secondary.put(unit, values = new double[scores.length]);
+                readValues(in, values, offset);
+            }
+        }
+
+        private static void writeValues(DataOutputStream out, double[] values) throws IOException {
+            out.writeInt(values.length);
+            for (double v : values)
+                out.writeDouble(v);
+        }
+
+        private static void readValues(DataInputStream in, double[] values, int offset) throws IOException {
+            int n = in.readInt();
+            if (n < 0 || offset + n > values.length)
+                throw new IOException("Expected at most " + (values.length - offset) + " scores, got " + n);
+            for (int i = 0; i < n; i++)
+                values[offset + i] = in.readDouble();
+        }
+    }
+
+    /**
+     * @return all benchmarks, engine first, then games and bots
+     */
+    public static List<Benchmark> allBenchmarks() {
+        List<Benchmark> benchmarks = new ArrayList<>();
+        benchmarks.addAll(EngineBenchmarks.all());
+        benchmarks.addAll(GameBenchmarks.all());
+        benchmarks.addAll(NegaSnakeBenchmarks.all());
+        return benchmarks;
+    }
+
+    /**
+     * Run the benchmarks
+     * <p>
+     * Options: {@code --filter REGEX} runs the benchmarks whose name contains a match,
+     * {@code --warmup N} and {@code --iterations N} set the number of iterations,
+     * {@code --time MS} their duration, {@code --forks N} the number of JVMs every benchmark
+     * is run in (1 by default, 0 to run them all in this JVM), {@code --json FILE} the file of
+     * the results (logs/benchmarks.json by default), and {@code --list} only lists the benchmarks
+     *
+     * @param args options
+     * @throws Exception if a benchmark fails
+     */
+    public static void main(String[] args) throws Exception {
+        BenchmarkRunner runner = new BenchmarkRunner();
+        Pattern filter = Pattern.compile("");
+        File json = new File("logs", "benchmarks.json");
+        boolean list = false;
+        boolean forked = false; // whether this JVM was forked to run one benchmark
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--filter") && i + 1 < args.length)
+                filter = Pattern.compile(args[++i]);
+            else if (args[i].equals("--warmup") && i + 1 < args.length)
+                runner.warmupIterations = Integer.parseInt(args[++i]);
+            else if (args[i].equals("--iterations") && i + 1 < args.length)
+                runner.measurementIterations = Integer.parseInt(args[++i]);
+            else if (args[i].equals("--time") && i + 1 < args.length)
+                runner.iterationMillis = Long.parseLong(args[++i]);
+            else if (args[i].equals("--json") && i + 1 < args.length)
+                json = new File(args[++i]);
+            else if (args[i].equals("--forks") && i + 1 < args.length)
+                runner.forks = Integer.parseInt(args[++i]);
+            else if (args[i].equals("--forked"))
+                forked = true;
+            else if (args[i].equals("--list"))
+                list = true;
+            else
+                throw new IllegalArgumentException("Unknown option " + args[i]);
+        }
+
+        if (forked) {
+            runner.runForked(filter);
+            return;
+        }
+
+        List<Result> results = new ArrayList<>();
+        for (Benchmark benchmark : allBenchmarks()) {
+            if (!filter.matcher(benchmark.name).find())
+                continue;
+            if (list) {
+                System.out.println(benchmark.name);
+                continue;
+            }
+            results.add(runner.forks > 0 ? runner.fork(benchmark) : runner.measure(benchmark));
+        }
+        if (list)
+            return;
+
+        System.out.println();
+        System.out.println(String.format(Locale.ROOT, "%-40s %5s %14s    %10s  %s", "Benchmark", "Cnt", "Score", "Error", "Units"));
+        for (Result result : results) {
+            printRow(result.benchmark.name, result.scores, unitOf(result.benchmark));
+            for (Map.Entry<String, double[]> e : result.secondary.entrySet())
+                printRow(result.benchmark.name + ":" + e.getKey(), e.getValue(), e.getKey());
+        }
+
+        File dir = json.getAbsoluteFile().getParentFile();
+        if (!dir.exists() && !dir.mkdirs())
+            throw new IOException("Cannot create directory " + dir);
+        try (FileWriter fw = new FileWriter(json, false)) {
+            runner.writeJson(fw, results);
+        }
+        System.out.println("\nResults written to " + json);
+    }
+
+    /**
+     * Run a benchmark in {@link #forks} JVMs of its own, one after another, and gather their scores
+     *
+     * @param benchmark benchmark to run
+     * @return its measured results over all forks
+     * @throws Exception if a forked JVM fails, or is interrupted
+     */
+    private Result fork(Benchmark benchmark) throws Exception {
+        Result result = new Result(benchmark, forks * measurementIterations);
+        for (int f = 0; f < forks; f++) {
+            System.out.println("# Fork " + (f + 1) + " of " + forks);
+            Process process = start(benchmark);
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(process.getInputStream()))) {
+                result.read(in, f * measurementIterations);
+            } catch (EOFException e) {
+                process.waitFor();
+                throw new IOException("The JVM forked for " + benchmark.name + " exited with code " + process.exitValue()
+                        + " before sending its scores");
+            } finally {
+                process.getOutputStream().close();
+            }
+            if (process.waitFor() != 0)
+                throw new IOException("The JVM forked for " + benchmark.name + " exited with code " + process.exitValue());
+        }
+        return result;
+    }
+
+    /**
+     * Starts a JVM with the class path of this one, to run one benchmark with the same iterations
+     *
+     * @param benchmark benchmark to run
+     * @return the process of the JVM
+     * @throws IOException if the JVM cannot be started
+     */
+    private Process start(Benchmark benchmark) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(BenchmarkRunner.class.getName());
+        command.add("--forked");
+        command.add("--filter");
+        command.add("^" + Pattern.quote(benchmark.name) + "$");
+        command.add("--warmup");
+        command.add(Integer.toString(warmupIterations));
+        command.add("--iterations");
+        command.add(Integer.toString(measurementIterations));
+        command.add("--time");
+        command.add(Long.toString(iterationMillis));
+        return new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+    }
+
+    /**
+     * Run the benchmark named by the filter in this JVM, forked by {@link #fork(Benchmark)}, and
+     * send its scores over the standard output, where nothing else is written
+     *
+     * @param filter filter matching the name of the benchmark
+     * @throws Exception if the benchmark fails, or no benchmark has that name
+     */
+    private void runForked(Pattern filter) throws Exception {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out)));
+        System.setOut(System.err);
+        for (Benchmark benchmark : allBenchmarks()) {
+            if (filter.matcher(benchmark.name).find()) {
+                measure(benchmark).write(out);
+                return;
+            }
+        }
+        throw new IllegalArgumentException("No benchmark matches " + filter);
+    }
+
+    /**
+     * Warm up and measure one benchmark
+     *
+     * @param benchmark benchmark to run
+     * @return its measured results
+     * @throws Exception if the benchmark fails
+     */
+    private Result measure(Benchmark benchmark) throws Exception {
+        System.out.println("# " + benchmark.name);
+        benchmark.setUp();
+        System.gc();
+        try {
+            int operations = calibrate(benchmark);
+            benchmark.secondaryMetrics(new LinkedHashMap<String, Double>(), 1, operations); // discarded
+            Map<String, Double> metrics = new LinkedHashMap<>();
+            for (int i = 0; i < warmupIterations; i++) {
+                long nanos = iterate(benchmark, operations);
+                benchmark.secondaryMetrics(metrics, nanos, iterationOperations); // discarded
+                System.out.println(String.format(Locale.ROOT, "Warmup %d: %.3f %s", i + 1,
+                        score(benchmark, nanos, iterationOperations), unitOf(benchmark)));
+            }
+
+            Result result = new Result(benchmark, measurementIterations);
+            for (int i = 0; i < measurementIterations; i++) {
+                long nanos = iterate(benchmark, operations);
+                result.scores[i] = score(benchmark, nanos, iterationOperations);
+                metrics.clear();
+                benchmark.secondaryMetrics(metrics, nanos, iterationOperations);
+                for (Map.Entry<String, Double> e : metrics.entrySet()) {
+                    double[] values = result.secondary.get(e.getKey());
+                    if (values == null)
+                        result.secondary.put(e.getKey(), values = new double[measurementIterations]);
+                    values[i] = e.getValue();
+                }
+                System.out.println(String.format(Locale.ROOT, "Iteration %d: %.3f %s", i + 1,
+                        result.scores[i], unitOf(benchmark)));
+            }
+            return result;
+        } finally {
+            benchmark.tearDown();
+        }
+    }
+
+    /**
+     * Find the number of operations that takes about a tenth of an iteration,
+     * so the clock is read rarely compared to the work
+     *
+     * @param benchmark benchmark to run
+     * @return number of operations per batch
+     * @throws Exception if the benchmark fails
+     */
+    private int calibrate(Benchmark benchmark) throws Exception {
+        long target = iterationMillis * 100_000L; // a tenth of an iteration, in nanoseconds
+        int operations = 1;
+        while (true) {
+            long start = System.nanoTime();
+            sink += benchmark.run(operations);
+            long nanos = System.nanoTime() - start;
+            if (nanos >= target / 2 || operations >= Integer.MAX_VALUE / 2)
+                return operations;
+            operations = nanos == 0 ? 2 * operations : (int) Math.min(Integer.MAX_VALUE / 2, Math.max(2L * operations,
+                    (long) operations * target / nanos));
+        }
+    }
+
+    /**
+     * Run batches of operations for the duration of an iteration
+     *
+     * @param benchmark benchmark to run
+     * @param operations number of operations per batch
+     * @return nanoseconds spent in the batches
+     * @throws Exception if the benchmark fails
+     */
+    private long iterate(Benchmark benchmark, int operations) throws Exception {
+        long end = System.nanoTime() + iterationMillis * 1_000_000L;
+        long total = 0;
+        long batches = 0;
+        long now;
+        do {
+            long start = System.nanoTime();
+            sink += benchmark.run(operations);
+            now = System.nanoTime();
+            total += now - start;
+            batches++;
+        } while (now < end);
+        iterationOperations = batches * operations;
+        return total;
+    }
+
+    /**
+     * @return time per operation in the unit of the benchmark
+     */
+    private static double score(Benchmark benchmark, long nanos, long operations) {
+        return (double) nanos / operations / benchmark.unit.toNanos(1);
+    }
+
+    /**
+     * @return unit of the score of a benchmark, e.g. "ns/op"
+     */
+    private static String unitOf(Benchmark benchmark) {
+        switch (benchmark.unit) {
+            case NANOSECONDS:
+                return "ns/op";
+            case MICROSECONDS:
+                return "us/op";
+            case MILLISECONDS:
+                return "ms/op";
+            default:
+                return "s/op";
+        }
+    }
+
+    private static double mean(double[] values) {
+        double sum = 0;
+        for (double v : values)
+            sum += v;
+        return sum / values.length;
+    }
+
+    /**
+     * Half-width of the 99.9% confidence interval of the mean, from Student's t-distribution
+     *
+     * @param values measured values
+     * @return the error, NaN for fewer than 2 values
+     */
+    private static double error(double[] values) {
+        int n = values.length;
+        if (n < 2)
+            return Double.NaN;
+        double mean = mean(values);
+        double squares = 0;
+        for (double v : values)
+            squares += (v - mean) * (v - mean);
+        double deviation = Math.sqrt(squares / (n - 1));
+
+        // Cornish-Fisher expansion of the t quantile around the normal one
+        double z = Z_999, df = n - 1;
+        double t = z + (z * z * z + z) / (4 * df)
+                + (5 * Math.pow(z, 5) + 16 * z * z * z + 3 * z) / (96 * df * df)
+                + (3 * Math.pow(z, 7) + 19 * Math.pow(z, 5) + 17 * z * z * z - 15 * z) / (384 * df * df * df);
+        return t * deviation / Math.sqrt(n);
+    }
+
+    private static void printRow(String name, double[] values, String unit) {
+        System.out.println(String.format(Locale.ROOT, "%-40s %5d %14.3f +- %10.3f  %s", name, values.length,
+                mean(values), error(values), unit));
+    }
+
+    /**
+     * Write the results as JSON in the layout of JMH
+     *
+     * @param fw      writer of the file
+     * @param results results of all benchmarks
+     * @throws IOException if the file cannot be written
+     */
+    private void writeJson(FileWriter fw, List<Result> results) throws IOException {
+        fw.write("[\n");
+        for (int r = 0; r < results.size(); r++) {
+            Result result = results.get(r);
+            fw.write("    {\n");
+            fw.write("        \"benchmark\" : " + quote(result.benchmark.name) + ",\n");
+            fw.write("        \"mode\" : \"avgt\",\n");
+            fw.write("        \"threads\" : 1,\n");
+            fw.write("        \"forks\" : " + forks + ",\n");
+            fw.write("        \"jdkVersion\" : " + quote(System.getProperty("java.version")) + ",\n");
+            fw.write("        \"vmName\" : " + quote(System.getProperty("java.vm.name")) + ",\n");
+            fw.write("        \"warmupIterations\" : " + warmupIterations + ",\n");
+            fw.write("        \"warmupTime\" : \"" + iterationMillis + " ms\",\n");
+            fw.write("        \"measurementIterations\" : " + measurementIterations + ",\n");
+            fw.write("        \"measurementTime\" : \"" + iterationMillis + " ms\",\n");
+            fw.write("        \"primaryMetric\" : ");
+            writeMetric(fw, result.scores, unitOf(result.benchmark), measurementIterations);
+            fw.write(",\n        \"secondaryMetrics\" : {");
+            int m = 0;
+            for (Map.Entry<String, double[]> e : result.secondary.entrySet()) {
+                fw.write(m++ == 0 ? "\n" : ",\n");
+                fw.write("            " + quote(e.getKey()) + " : ");
+                writeMetric(fw, e.getValue(), e.getKey(), measurementIterations);
+            }
+            fw.write(m == 0 ? "}\n" : "\n        }\n");
+            fw.write(r + 1 < results.size() ? "    },\n" : "    }\n");
+        }
+        fw.write("]\n");
+    }
+
+    /**
+     * Write a metric, its raw data split by fork like JMH does
+     *
+     * @param fw         writer of the file
+     * @param values     values of all forks one after another
+     * @param unit       unit of the values
+     * @param iterations values per fork
+     * @throws IOException if the file cannot be written
+     */
+    private static void writeMetric(FileWriter fw, double[] values, String unit, int iterations) throws IOException {
+        double mean = mean(values), error = error(values);
+        fw.write("{ \"score\" : " + number(mean) + ", \"scoreError\" : " + number(error)
+                + ", \"scoreConfidence\" : [ " + number(mean - error) + ", " + number(mean + error) + " ]"
+                + ", \"scoreUnit\" : " + quote(unit) + ", \"rawData\" : [ [ ");
+        for (int i = 0; i < values.length; i++)
+            fw.write((i == 0 ? "" : i % iterations == 0 ? " ], [ " : ", ") + number(values[i]));
+        fw.write(" ] ] }");
+    }
+
+    /**
+     * @return the number as JSON, NaN as a string like JMH writes it
+     */
+    private static String number(double value) {
+        return Double.isNaN(value) || Double.isInfinite(value) ? "\"NaN\"" : String.format(Locale.ROOT, "%.6f", value);
+    }
+
+    private static String quote(String text) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (char c : text.toCharArray()) {
+            if (c == '"' || c == '\\')
+                sb.append('\\').append(c);
+            else if (c < 0x20)
+                sb.append(String.format("\\u%04x", (int) c));
+            else
+                sb.append(c);
+        }
+        return sb.append('"').toString();
+    }
+}
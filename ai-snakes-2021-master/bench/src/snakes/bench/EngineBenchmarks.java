@@ -0,0 +1,285 @@
+package snakes.bench;
+
+import snakes.Bot;
+import snakes.Coordinate;
+import snakes.Direction;
+import snakes.GameLogger;
+import snakes.OccupancyGrid;
+import snakes.Snake;
+import snakes.SnakeGame;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Microbenchmarks of the core classes of the engine: {@link Coordinate}, {@link Snake},
+ * {@link OccupancyGrid} and the step of {@link SnakeGame}.
+ * <p>
+ * The snakes run laps around squares, so they move forever without colliding
+ */
+public class EngineBenchmarks {
+    private static final Coordinate MAZE_SIZE = new Coordinate(14, 14);
+
+    /**
+     * Bot that runs laps around a square, counterclockwise
+     */
+    static class LapBot implements Bot {
+        private final int x0, y0, x1, y1;
+
+        /**
+         * @param x0 left column of the square
+         * @param y0 bottom row of the square
+         * @param x1 right column of the square
+         * @param y1 top row of the square
+         */
+        LapBot(int x0, int y0, int x1, int y1) {
+            this.x0 = x0;
+            this.y0 = y0;
+            this.x1 = x1;
+            this.y1 = y1;
+        }
+
+        /**
+         * @param head head of the snake, on the square
+         * @return direction along the square
+         */
+        Direction next(Coordinate head) {
+            if (head.y == y0 && head.x < x1)
+                return Direction.RIGHT;
+            if (head.x == x1 && head.y < y1)
+                return Direction.UP;
+            if (head.y == y1 && head.x > x0)
+                return Direction.LEFT;
+            return Direction.DOWN;
+        }
+
+        @Override
+        public Direction chooseDirection(Snake snake, Snake opponent, Coordinate mazeSize, Coordinate apple) {
+            return next(snake.getHead());
+        }
+    }
+
+    /**
+     * @return a snake of 5 segments starting a lap around the square (4, 4) - (9, 9)
+     */
+    private static Snake lapSnake() {
+        return new Snake(new Coordinate(4, 4), Direction.DOWN, 5, MAZE_SIZE);
+    }
+
+    /**
+     * @return all engine benchmarks
+     */
+    public static List<Benchmark> all() {
+        List<Benchmark> benchmarks = new ArrayList<>();
+
+        benchmarks.add(new Benchmark("engine.coordinateMoveTo", TimeUnit.NANOSECONDS) {
+            private final LapBot lap = new LapBot(4, 4, 9, 9);
+            private Coordinate c;
+
+            @Override
+            public void setUp() {
+                c = new Coordinate(4, 4);
+            }
+
+            @Override
+            public long run(int operations) {
+                long sum = 0;
+                for (int i = 0; i < operations; i++) {
+                    c = c.moveTo(lap.next(c));
+                    sum += c.x;
+                }
+                return sum;
+            }
+        });
+
+        benchmarks.add(new Benchmark("engine.coordinateHashSet", TimeUnit.NANOSECONDS) {
+            private final HashSet<Coordinate> set = new HashSet<>();
+            private Coordinate[] probes;
+
+            @Override
+            public void setUp() {
+                // half of the board, as a checkerboard, probed with fresh coordinates
+                for (int x = 0; x < MAZE_SIZE.x; x++)
+                    for (int y = 0; y < MAZE_SIZE.y; y++)
+                        if ((x + y) % 2 == 0)
+                            set.add(new Coordinate(x, y));
+                probes = new Coordinate[MAZE_SIZE.x * MAZE_SIZE.y];
+                for (int i = 0; i < probes.length; i++)
+                    probes[i] = new Coordinate(i % MAZE_SIZE.x, i / MAZE_SIZE.x);
+            }
+
+            @Override
+            public long run(int operations) {
+                long count = 0;
+                for (int i = 0; i < operations; i++)
+                    if (set.contains(probes[i % probes.length]))
+                        count++;
+                return count;
+            }
+        });
+
+        benchmarks.add(new Benchmark("engine.snakeMoveTo", TimeUnit.NANOSECONDS) {
+            private final LapBot lap = new LapBot(4, 4, 9, 9);
+            private Snake snake;
+
+            @Override
+            public void setUp() {
+                snake = lapSnake();
+            }
+
+            @Override
+            public long run(int operations) {
+                long sum = 0;
+                for (int i = 0; i < operations; i++) {
+                    if (!snake.moveTo(lap.next(snake.getHead()), false))
+                        throw new IllegalStateException("The snake collided");
+                    sum += snake.body.size();
+                }
+                return sum;
+            }
+        });
+
+        benchmarks.add(new Benchmark("engine.snakeContains", TimeUnit.NANOSECONDS) {
+            private Snake snake;
+
+            @Override
+            public void setUp() {
+                snake = lapSnake();
+            }
+
+            @Override
+            public long run(int operations) {
+                long count = 0;
+                for (int i = 0; i < operations; i++)
+                    if (snake.elements.contains(Coordinate.of(4, i % MAZE_SIZE.y)))
+                        count++;
+                return count;
+            }
+        });
+
+        benchmarks.add(new Benchmark("engine.snakeClone", TimeUnit.NANOSECONDS) {
+            private Snake snake;
+
+            @Override
+            public void setUp() {
+                snake = lapSnake();
+            }
+
+            @Override
+            public long run(int operations) {
+                long sum = 0;
+                for (int i = 0; i < operations; i++)
+                    sum += snake.clone().body.size();
+                return sum;
+            }
+        });
+
+        benchmarks.add(new Benchmark("engine.snakeMoveUndo", TimeUnit.NANOSECONDS) {
+            private Snake snake;
+
+            @Override
+            public void setUp() {
+                snake = lapSnake().snapshot();
+            }
+
+            @Override
+            public long run(int operations) {
+                long sum = 0;
+                for (int i = 0; i < operations; i++) {
+                    // two plies of look-ahead from the same position
+                    if (snake.move(Direction.RIGHT, i % 2 == 0) && snake.move(Direction.UP, false))
+                        sum += snake.getHead().y;
+                    snake.undo();
+                    snake.undo();
+                }
+                return sum;
+            }
+        });
+
+        benchmarks.add(new Benchmark("engine.occupancyStep", TimeUnit.NANOSECONDS) {
+            private final LapBot lap = new LapBot(4, 4, 9, 9);
+            private final Random rnd = new Random(1);
+            private Snake snake;
+            private OccupancyGrid grid;
+
+            @Override
+            public void setUp() {
+                snake = lapSnake();
+                grid = new OccupancyGrid(MAZE_SIZE);
+                grid.occupy(snake);
+            }
+
+            @Override
+            public long run(int operations) {
+                long sum = 0;
+                for (int i = 0; i < operations; i++) {
+                    Coordinate oldHead = snake.getHead();
+                    Coordinate oldTail = snake.body.getLast();
+                    int oldSize = snake.body.size();
+                    snake.moveTo(lap.next(oldHead), false);
+                    grid.update(snake, oldHead, oldTail, oldSize);
+                    sum += grid.randomFreeCell(rnd).x;
+                }
+                return sum;
+            }
+        });
+
+        benchmarks.add(new GameStepBenchmark("engine.applyMoves", false));
+        benchmarks.add(new GameStepBenchmark("engine.runOneStep", true));
+        return benchmarks;
+    }
+
+    /**
+     * One step of a game of two snakes running laps, either applying the moves
+     * directly or asking the bots for them. A game that ends is replaced by a new one
+     */
+    private static class GameStepBenchmark extends Benchmark {
+        private final boolean askBots;
+        private final LapBot lap0 = new LapBot(1, 1, 5, 5);
+        private final LapBot lap1 = new LapBot(8, 8, 12, 12);
+        private SnakeGame game;
+        private long seed = 0;
+
+        /**
+         * @param name    name of the benchmark
+         * @param askBots True - if the step asks the bots for their moves
+         */
+        GameStepBenchmark(String name, boolean askBots) {
+            super(name, TimeUnit.NANOSECONDS);
+            this.askBots = askBots;
+        }
+
+        @Override
+        public void setUp() {
+            GameLogger.setDefaultVerbosity(GameLogger.Verbosity.OFF);
+            newGame();
+        }
+
+        private void newGame() {
+            Coordinate[] heads = {new Coordinate(1, 1), new Coordinate(8, 8)};
+            Direction[] tailDirs = {Direction.UP, Direction.UP};
+            game = new SnakeGame(MAZE_SIZE, heads, tailDirs, 3, new Bot[]{lap0, lap1}, seed++);
+        }
+
+        @Override
+        public long run(int operations) throws InterruptedException {
+            long sum = 0;
+            for (int i = 0; i < operations; i++) {
+                boolean running = askBots ? game.runOneStep()
+                        : game.applyMoves(lap0.next(game.snake0.getHead()), lap1.next(game.snake1.getHead()));
+                if (!running)
+                    newGame(); // a snake grew longer than its lap
+                sum += game.appleCoordinate.x;
+            }
+            return sum;
+        }
+
+        @Override
+        public void tearDown() {
+            game.finishByLimit(); // stops the threads of the bots
+        }
+    }
+}
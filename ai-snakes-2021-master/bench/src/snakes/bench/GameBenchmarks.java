@@ -0,0 +1,108 @@
+package snakes.bench;
+
+import johndoe.SampleBot;
+import snakes.Bot;
+import snakes.GameLogger;
+import snakes.SnakeGame;
+import snakes.SnakesHeadless;
+import snakes.SnakesUIMain;
+import snakes.SubprocessBot;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Macrobenchmarks that play full headless games of {@link SampleBot}s, which take their
+ * decisions without randomness. A benchmark cycles through the games of seeds 0 to
+ * {@code GAMES - 1}, so it plays the same games in every run. The games of game.subprocess
+ * run the first bot in a JVM of its own, so they include starting that JVM
+ */
+public class GameBenchmarks {
+    private static final int GAMES = 16;
+
+    /**
+     * @return all game benchmarks
+     */
+    public static List<Benchmark> all() {
+        List<Benchmark> benchmarks = new ArrayList<>();
+        benchmarks.add(new GameBenchmark("game.headless", 2, false));
+        benchmarks.add(new GameBenchmark("game.freeForAll8", 8, false));
+        benchmarks.add(new GameBenchmark("game.subprocess", 2, true));
+        return benchmarks;
+    }
+
+    /**
+     * One full game, from the creation of the bots to the result
+     */
+    private static class GameBenchmark extends Benchmark {
+        private final int players;
+        private final boolean subprocess; // whether the first bot runs in a JVM of its own
+        private int seed;
+        private long steps;
+        private long decisions, overheadNanos; // of the bots in their own JVM
+
+        /**
+         * @param name       name of the benchmark
+         * @param players    number of snakes in a game
+         * @param subprocess True - to run the first bot in a JVM of its own, see {@link SubprocessBot}
+         */
+        GameBenchmark(String name, int players, boolean subprocess) {
+            super(name, TimeUnit.MICROSECONDS);
+            this.players = players;
+            this.subprocess = subprocess;
+        }
+
+        @Override
+        public void setUp() {
+            GameLogger.setDefaultVerbosity(GameLogger.Verbosity.OFF);
+            seed = 0;
+        }
+
+        @Override
+        public long run(int operations) throws InterruptedException, IOException {
+            long sum = 0;
+            for (int i = 0; i < operations; i++) {
+                Bot[] bots = new Bot[players];
+                for (int k = 0; k < players; k++)
+                    bots[k] = new SampleBot();
+                if (subprocess)
+                    bots[0] = new SubprocessBot(SampleBot.class);
+                SnakeGame game = SnakesUIMain.createGame(bots, seed);
+                seed = (seed + 1) % GAMES;
+
+                int step = 0;
+                boolean running = true;
+                while (running) {
+                    running = game.runOneStep();
+                    step++;
+                    if (running && step >= SnakesHeadless.STEP_LIMIT_PER_GAME) {
+                        game.finishByLimit();
+                        running = false;
+                    }
+                }
+                steps += step;
+                sum += game.gameResult.length();
+                if (subprocess) {
+                    SubprocessBot bot = (SubprocessBot) bots[0];
+                    decisions += bot.decisions;
+                    overheadNanos += bot.roundTripNanos - bot.botNanos;
+                }
+            }
+            return sum;
+        }
+
+        @Override
+        public void secondaryMetrics(Map<String, Double> metrics, long nanos, long operations) {
+            metrics.put("steps/s", steps * 1e9 / nanos);
+            metrics.put("steps/game", (double) steps / operations);
+            if (subprocess && decisions > 0)
+                metrics.put("us overhead/decision", overheadNanos / 1e3 / decisions);
+            steps = 0;
+            decisions = 0;
+            overheadNanos = 0;
+        }
+    }
+}
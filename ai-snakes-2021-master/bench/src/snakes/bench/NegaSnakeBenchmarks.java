@@ -0,0 +1,126 @@
+package snakes.bench;
+
+import negasnake.Constants;
+import negasnake.State;
+import snakes.Coordinate;
+import snakes.Direction;
+import snakes.Snake;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the search of {@link negasnake.NegaSnake}: the time to search a fixed set
+ * of positions to a given depth, and the nodes it visits per second on the way
+ */
+public class NegaSnakeBenchmarks {
+    private static final Coordinate MAZE_SIZE = new Coordinate(14, 14); // the only board NegaSnake plays on
+    private static final int[] DEPTHS = {4, 6, 8}; // moves of each snake
+
+    /**
+     * A position to search: our snake, the opponent and the apple
+     */
+    private static class Position {
+        final Snake snake, opponent;
+        final Coordinate apple;
+
+        Position(Snake snake, Snake opponent, Coordinate apple) {
+            this.snake = snake;
+            this.opponent = opponent;
+            this.apple = apple;
+        }
+    }
+
+    /**
+     * Build a snake and let it grow along a path
+     *
+     * @param head          initial head of the snake
+     * @param tailDirection direction of its initial tail
+     * @param size          initial length
+     * @param path          moves to grow along, as letters U, D, L and R
+     * @return the snake at the end of the path
+     */
+    private static Snake snake(Coordinate head, Direction tailDirection, int size, String path) {
+        Snake snake = new Snake(head, tailDirection, size, MAZE_SIZE);
+        for (char c : path.toCharArray()) {
+            Direction d = c == 'U' ? Direction.UP : c == 'D' ? Direction.DOWN : c == 'L' ? Direction.LEFT : Direction.RIGHT;
+            if (!snake.moveTo(d, true))
+                throw new IllegalArgumentException("Path " + path + " collides");
+        }
+        return snake;
+    }
+
+    /**
+     * @return the positions: the start of a game, the middle of the board, long snakes and heads side by side
+     */
+    private static Position[] positions() {
+        return new Position[]{
+                new Position(snake(new Coordinate(2, 2), Direction.DOWN, 3, ""),
+                        snake(new Coordinate(11, 11), Direction.UP, 3, ""), new Coordinate(7, 7)),
+                new Position(snake(new Coordinate(6, 6), Direction.LEFT, 5, ""),
+                        snake(new Coordinate(8, 9), Direction.RIGHT, 5, ""), new Coordinate(7, 8)),
+                new Position(snake(new Coordinate(1, 4), Direction.DOWN, 4, "RRRRUUU"),
+                        snake(new Coordinate(12, 9), Direction.UP, 4, "LLLLDDD"), new Coordinate(6, 10)),
+                new Position(snake(new Coordinate(6, 7), Direction.LEFT, 6, ""),
+                        snake(new Coordinate(7, 8), Direction.RIGHT, 6, ""), new Coordinate(9, 3)),
+        };
+    }
+
+    /**
+     * @return all NegaSnake benchmarks
+     */
+    public static List<Benchmark> all() {
+        List<Benchmark> benchmarks = new ArrayList<>();
+        for (int depth : DEPTHS)
+            benchmarks.add(new SearchBenchmark("negasnake.searchToDepth" + depth, depth));
+        return benchmarks;
+    }
+
+    /**
+     * Search of one position to a fixed depth, cycling through the positions
+     */
+    private static class SearchBenchmark extends Benchmark {
+        private final int depth;
+        private final State state = new State();
+        private Position[] positions;
+        private int next = 0;
+        private long nodes;
+
+        /**
+         * @param name  name of the benchmark
+         * @param depth moves of each snake to search
+         */
+        SearchBenchmark(String name, int depth) {
+            super(name, TimeUnit.MICROSECONDS);
+            this.depth = depth;
+        }
+
+        @Override
+        public void setUp() {
+            positions = positions();
+        }
+
+        @Override
+        public long run(int operations) throws InterruptedException {
+            long sum = 0;
+            for (int i = 0; i < operations; i++) {
+                Position p = positions[next];
+                next = (next + 1) % positions.length;
+                state.reset(p.snake, p.opponent, p.apple, Constants.APPLE_TTL, System.currentTimeMillis());
+                state.searchTo(depth);
+                nodes += state.nodes;
+                sum += state.bestMove;
+            }
+            return sum;
+        }
+
+        @Override
+        public void secondaryMetrics(Map<String, Double> metrics, long nanos, long operations) {
+            metrics.put("nodes/s", nodes * 1e9 / nanos);
+            metrics.put("nodes/op", (double) nodes / operations);
+            nodes = 0;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package snakes.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One decision of a bot, recorded on the thread of the bot, so samples taken on the thread
+ * during the event belong to the decision
+ */
+@Name("snakes.BotDecision")
+@Label("Bot Decision")
+@Category({"Snakes", "Bot"})
+@Description("One decision of a bot, including the changes of the last step it was handed")
+@StackTrace(false)
+class BotDecisionEvent extends jdk.jfr.Event {
+    @Label("Game")
+    String game;
+
+    @Label("Step")
+    int step;
+
+    @Label("Bot")
+    String bot;
+
+    @Label("Snake")
+    int snake;
+
+    @Label("Direction")
+    @Description("Direction chosen, empty if the bot threw an exception")
+    String direction;
+}
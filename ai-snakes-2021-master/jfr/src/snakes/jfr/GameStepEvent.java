@@ -0,0 +1,61 @@
+package snakes.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * One step of a game, from asking the bots for their moves to the apple of the next step,
+ * with the time spent in each phase of the step
+ */
+@Name("snakes.GameStep")
+@Label("Game Step")
+@Category({"Snakes", "Game"})
+@Description("One step of a game and the time spent in each of its phases")
+@StackTrace(false)
+class GameStepEvent extends jdk.jfr.Event {
+    @Label("Game")
+    String game;
+
+    @Label("Step")
+    int step;
+
+    @Label("Snakes")
+    @Description("Snakes on the board at the start of the step")
+    int snakes;
+
+    @Label("Decision Wait")
+    @Description("Time spent waiting for the decisions of the bots")
+    @Timespan
+    long decisions;
+
+    @Label("Move Application")
+    @Description("Time spent moving the snakes and looking for collisions")
+    @Timespan
+    long moves;
+
+    @Label("Apple Respawn")
+    @Description("Time spent placing the apple anew")
+    @Timespan
+    long apple;
+
+    @Label("Logging")
+    @Description("Time spent writing the game log and the replay")
+    @Timespan
+    long logging;
+
+    @Label("Slowest Bot")
+    @Description("Bot that took the longest to decide")
+    String slowestBot;
+
+    @Label("Slowest Decision")
+    @Timespan
+    long slowestDecision;
+
+    @Label("Timeouts")
+    @Description("Bots that did not decide in time")
+    int timeouts;
+}
@@ -0,0 +1,90 @@
+package snakes.jfr;
+
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import snakes.Direction;
+import snakes.Tracing;
+
+/**
+ * Implements {@link Tracing} with Java Flight Recorder events. The engine picks it up by name
+ * when this module is on the class path, see {@link Tracing#TRACER}.
+ * <p>
+ * An event is only created while a recording has its type enabled, so outside recordings
+ * the engine only pays for checking that flag
+ */
+public class JfrTracing extends Tracing {
+    private final EventType stepType = EventType.getEventType(GameStepEvent.class);
+    private final EventType decisionType = EventType.getEventType(BotDecisionEvent.class);
+    private final EventType searchType = EventType.getEventType(SearchIterationEvent.class);
+
+    /**
+     * @param event new event
+     * @return the event, begun
+     */
+    private static Object begin(Event event) {
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public Object beginStep() {
+        return stepType.isEnabled() ? begin(new GameStepEvent()) : null;
+    }
+
+    @Override
+    public void endStep(Object event, String game, int step, int snakes, long decisions, long moves, long apple,
+                        long logging, String slowestBot, long slowest, int timeouts) {
+        GameStepEvent e = (GameStepEvent) event;
+        e.end();
+        if (!e.shouldCommit())
+            return;
+        e.game = game;
+        e.step = step;
+        e.snakes = snakes;
+        e.decisions = decisions;
+        e.moves = moves;
+        e.apple = apple;
+        e.logging = logging;
+        e.slowestBot = slowestBot;
+        e.slowestDecision = slowest;
+        e.timeouts = timeouts;
+        e.commit();
+    }
+
+    @Override
+    public Object beginDecision() {
+        return decisionType.isEnabled() ? begin(new BotDecisionEvent()) : null;
+    }
+
+    @Override
+    public void endDecision(Object event, String game, int step, String bot, int snake, Direction direction) {
+        BotDecisionEvent e = (BotDecisionEvent) event;
+        e.end();
+        if (!e.shouldCommit())
+            return;
+        e.game = game;
+        e.step = step;
+        e.bot = bot;
+        e.snake = snake;
+        e.direction = direction == null ? null : direction.name();
+        e.commit();
+    }
+
+    @Override
+    public Object beginSearch() {
+        return searchType.isEnabled() ? begin(new SearchIterationEvent()) : null;
+    }
+
+    @Override
+    public void endSearch(Object event, String bot, int depth, long nodes, boolean completed) {
+        SearchIterationEvent e = (SearchIterationEvent) event;
+        e.end();
+        if (!e.shouldCommit())
+            return;
+        e.bot = bot;
+        e.depth = depth;
+        e.nodes = nodes;
+        e.completed = completed;
+        e.commit();
+    }
+}
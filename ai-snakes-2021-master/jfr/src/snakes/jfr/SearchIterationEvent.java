@@ -0,0 +1,30 @@
+package snakes.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One iteration of the iterative deepening search of a bot
+ */
+@Name("snakes.SearchIteration")
+@Label("Search Iteration")
+@Category({"Snakes", "Bot"})
+@Description("One iteration of iterative deepening, to a fixed depth")
+@StackTrace(false)
+class SearchIterationEvent extends jdk.jfr.Event {
+    @Label("Bot")
+    String bot;
+
+    @Label("Depth")
+    int depth;
+
+    @Label("Nodes")
+    long nodes;
+
+    @Label("Completed")
+    @Description("False if the iteration was interrupted before it finished")
+    boolean completed;
+}
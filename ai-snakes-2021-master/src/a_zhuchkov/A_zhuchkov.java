@@ -58,20 +58,23 @@ public class A_zhuchkov implements Bot {
             double shortestDistanceToApple = Math.max(mazeSize.x, mazeSize.y) + 1;
             Direction shortestDirectionToApple = null;
 
+            /* Look one move ahead on snapshots, undoing every move instead of copying the snakes */
+            Snake new_snake = snake.snapshot();
+            Snake new_opponent = opponent.snapshot();
             for (Direction dir : notLosing) {
                 double dist = calculateManhattanDistance(head.moveTo(dir), apple);
 
-                Snake new_snake = snake.clone();
-                new_snake.moveTo(dir, false);
+                new_snake.move(dir, false);
 
                 boolean result = true;
                 for (Direction dOp : validMovesOp) {
-                    Snake new_opponent = opponent.clone();
-                    new_opponent.moveTo(dOp, false);
-
+                    new_opponent.move(dOp, false);
                     result = result & !new_opponent.elements.contains(new_snake.getHead());
+                    new_opponent.undo();
                 }
 
+                new_snake.undo();
+
                 if (dist < shortestDistanceToApple && result) {
                     shortestDistanceToApple = dist;
                     shortestDirectionToApple = dir;
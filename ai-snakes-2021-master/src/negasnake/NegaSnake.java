@@ -20,13 +20,17 @@ import snakes.Bot;
 import snakes.Coordinate;
 import snakes.Direction;
 import snakes.Snake;
+import snakes.StepDelta;
+import snakes.StepListener;
 
 import static negasnake.Constants.*;
 
-public class NegaSnake implements Bot {
+public class NegaSnake implements Bot, StepListener {
 
-    private Coordinate apple;
-    private int appleTTL;
+    /**
+     * No. turns until apple moves to new location, as told by the game after every step.
+     */
+    private int appleTTL = APPLE_TTL;
 
     private State state;
 
@@ -34,14 +38,7 @@ public class NegaSnake implements Bot {
     public Direction chooseDirection(Snake snake, Snake opponent, Coordinate mazeSize, Coordinate apple) {
         final long time0 = System.currentTimeMillis();
 
-        // 1. bookkeeping
-        if (this.apple == null || this.apple.x != apple.x || this.apple.y != apple.y) {
-            this.apple = apple;
-            appleTTL = APPLE_TTL;
-        } else {
-            appleTTL--;
-            if (appleTTL == 0) appleTTL = APPLE_TTL; // respawned in same place!?
-        }
+        // 1. bookkeeping (appleTTL is kept up to date by stepped)
         if (state == null) state = new State();
         state.reset(snake, opponent, apple, appleTTL, time0);
 
@@ -78,4 +75,9 @@ public class NegaSnake implements Bot {
         return d;
     }
 
+    @Override
+    public void stepped(final StepDelta delta) {
+        appleTTL = delta.appleTTL();
+    }
+
 }
@@ -18,6 +18,7 @@ package negasnake;
 
 import snakes.Coordinate;
 import snakes.Snake;
+import snakes.Tracing;
 
 import java.util.ArrayDeque;
 import java.util.Arrays;
@@ -76,6 +77,10 @@ public final class State implements Runnable {
      * time as possible.
      */
     public boolean prolong;
+    /**
+     * No. nodes visited by {@code search} since the last {@code reset}.
+     */
+    public long nodes;
 
     public State() {
         posDistance = new int[area];
@@ -387,6 +392,7 @@ public final class State implements Runnable {
 
     private int search(final int depth, int a, final int b, final int sequence, int score, final boolean eaten) throws InterruptedException {
         if (Thread.interrupted()) throw new InterruptedException();
+        nodes++;
 
         final boolean isA = depth % 2 == 0;
 
@@ -421,7 +427,7 @@ public final class State implements Runnable {
             final int m = moves[i];
 
             // 1a. play (head)
-            final Coordinate head = new Coordinate(m >> S_X & M_COORDINATE, m >> S_Y & M_COORDINATE);
+            final Coordinate head = Coordinate.of(m >> S_X & M_COORDINATE, m >> S_Y & M_COORDINATE);
             body.addFirst(head);
             occupied[oldHead.x + oldHead.y * size] = true;
 
@@ -488,7 +494,7 @@ public final class State implements Runnable {
             final int m = moves[i];
 
             // 1a. play (head)
-            final Coordinate head = new Coordinate(m >> S_X & M_COORDINATE, m >> S_Y & M_COORDINATE);
+            final Coordinate head = Coordinate.of(m >> S_X & M_COORDINATE, m >> S_Y & M_COORDINATE);
             aBody.addFirst(head);
             aOccupied[oldHead.x + oldHead.y * size] = true;
 
@@ -539,18 +545,30 @@ public final class State implements Runnable {
 
         do {
             depth++;
+            final Object event = Tracing.TRACER.beginSearch();
+            final long nodes0 = nodes;
             try {
                 searchFirst(2 * depth);
             } catch (final Exception e) {
+                if (event != null) Tracing.TRACER.endSearch(event, "NegaSnake", depth, nodes - nodes0, false);
                 if (DEBUG) { depth--; System.out.println("[NegaSnake] interrupted! " + e.getClass().getSimpleName()); }
                 break;
             }
+            if (event != null) Tracing.TRACER.endSearch(event, "NegaSnake", depth, nodes - nodes0, true);
             elapsed = System.currentTimeMillis() - time0;
         } while (elapsed < T_MS_SEARCH && depth < DEP_MAX);
 
         if (DEBUG) System.out.print("[NegaSnake] depth: " + depth);
     }
 
+    /**
+     * Deepens the search like {@code run}, but without time limit, until both snakes have made {@code depth} moves.
+     */
+    public void searchTo(final int depth) throws InterruptedException {
+        for (int d = 1; d <= depth; d++)
+            searchFirst(2 * d);
+    }
+
     public void reset(final Snake a, final Snake b, final Coordinate apple, final int appleTTL, final long time0) {
         final List<Coordinate> aBodyList = (LinkedList<Coordinate>) a.body;
         final List<Coordinate> bBodyList = (LinkedList<Coordinate>) b.body;
@@ -582,6 +600,7 @@ public final class State implements Runnable {
         this.time0 = time0;
         bestMove = -1;
         prolong = false;
+        nodes = 0;
     }
 
     /**
@@ -2,7 +2,8 @@ package snakes;
 
 /**
  * This interface provides functions that should be implemented
- * to create smart snake bot for the game
+ * to create smart snake bot for the game; a bot that would rather be given a
+ * {@link GameView} of the board implements {@link ViewBot}
  */
 public interface Bot {
     /**
@@ -16,5 +17,29 @@ public interface Bot {
      * @return Direction in which snake should crawl next game step
      */
     public Direction chooseDirection(final Snake snake, final Snake opponent, final Coordinate mazeSize, final Coordinate apple);
-}
 
+    /**
+     * Choose the step in a game of more than two snakes. Bots written for two snakes
+     * only see the opponent whose head is closest to their own head
+     *
+     * @param snake     Your snake's body with coordinates for each segment
+     * @param opponents Bodies of all other snakes still on the board
+     * @param mazeSize  Size of the board
+     * @param apple     Coordinate of an apple
+     * @return Direction in which snake should crawl next game step
+     */
+    public default Direction chooseDirection(final Snake snake, final Snake[] opponents, final Coordinate mazeSize, final Coordinate apple) {
+        Coordinate head = snake.getHead();
+        Snake closest = opponents[0];
+        int closestDistance = Integer.MAX_VALUE;
+        for (Snake opponent : opponents) {
+            Coordinate h = opponent.getHead();
+            int distance = Math.abs(h.x - head.x) + Math.abs(h.y - head.y);
+            if (distance < closestDistance) {
+                closest = opponent;
+                closestDistance = distance;
+            }
+        }
+        return chooseDirection(snake, closest, mazeSize, apple);
+    }
+}
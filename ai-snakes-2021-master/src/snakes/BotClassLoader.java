@@ -0,0 +1,44 @@
+package snakes;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+
+/**
+ * Implements the class loader of one bot. It loads the classes of the bot from the bot's jar or
+ * class directory itself, before asking its parent, so bots loaded by different loaders do not
+ * share static state even if they are the same bot. Only the engine, in package snakes, and the
+ * Java platform are loaded by the parent and shared by all bots.
+ * <p>
+ * Closing the loader closes its jar; its classes are unloaded once no instance of them is left
+ */
+public class BotClassLoader extends URLClassLoader {
+    static {
+        ClassLoader.registerAsParallelCapable();
+    }
+
+    /**
+     * @param urls jars or class directories of the bot
+     */
+    public BotClassLoader(URL[] urls) {
+        super(urls, BotClassLoader.class.getClassLoader());
+    }
+
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+        if (name.startsWith("java.") || name.startsWith("snakes."))
+            return super.loadClass(name, resolve);
+        synchronized (getClassLoadingLock(name)) {
+            Class<?> c = findLoadedClass(name);
+            if (c == null) {
+                try {
+                    c = findClass(name);
+                } catch (ClassNotFoundException e) {
+                    return super.loadClass(name, resolve); // a class of the platform or of the class path
+                }
+            }
+            if (resolve)
+                resolveClass(c);
+            return c;
+        }
+    }
+}
@@ -1,28 +1,161 @@
 package snakes;
 
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
 import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
 
 /**
- *
+ * This class is responsible for finding the classes of the bots: on the class path by their
+ * binary name, and in the jars of a bot directory, which may be dropped in, replaced and removed
+ * while a tournament runs.
+ * <p>
+ * Every jar of the bot directory gets a {@link BotClassLoader} of its own, and every bot created
+ * by {@link #newBot(Class)} from one of its classes yet another one, so bots do not share static
+ * state, not even two instances of the same bot in one game. With {@link #setIsolated(boolean)},
+ * the bots on the class path are created the same way. When its game ends, the loader of a bot
+ * is kept for the next instance of the same bot, see {@link #release(Bot)}, so the code the JIT
+ * compiler compiled for it, also during the {@link WarmUp}, is not thrown away after every game.
+ * <p>
+ * {@link #scan(List)} loads the jars that are new in the directory in parallel, and links and
+ * verifies their bot classes, so a broken jar is reported before it plays. The bots are loaded
+ * from a private copy of their jar, so the jars of the directory can be replaced or removed while
+ * their bots are playing. The jars that were removed or replaced since the last scan are retired:
+ * their loaders are closed and dropped, so their classes are unloaded once the games still
+ * playing them are over
  */
 public class BotLoader extends ClassLoader {
+    public static final String BOT_CLASS_ATTRIBUTE = "Bot-Class"; // manifest attribute naming the bot classes of a jar
+
+    private static File botDirectory; // directory of bot jars, or null
+    private static boolean isolated = false; // whether bots on the class path get a loader of their own as well
+    private static final HashMap<File, BotJar> jars = new HashMap<>(); // jars loaded from the directory, guarded by the class
+    // loaders of the bots that are playing, by the bot class they were created for, guarded by the class
+    private static final IdentityHashMap<BotClassLoader, Class<? extends Bot>> lent = new IdentityHashMap<>();
+    // loaders of the bots whose games are over, most recently used first, guarded by the class
+    private static final HashMap<Class<? extends Bot>, ArrayDeque<BotClassLoader>> idle = new HashMap<>();
+
+    /**
+     * A jar of the bot directory and the bot classes found in it
+     */
+    private static class BotJar {
+        final File file;
+        final long lastModified;
+        final long length;
+        File copy; // private copy of the jar the bots are loaded from, null until it is made
+        BotClassLoader loader;
+        final List<Class<? extends Bot>> bots = new ArrayList<>();
+
+        BotJar(File file) {
+            this.file = file;
+            this.lastModified = file.lastModified();
+            this.length = file.length();
+        }
+
+        /**
+         * Copies the jar and creates the loader of its classes
+         *
+         * @throws IOException if the jar cannot be copied
+         */
+        void open() throws IOException {
+            copy = File.createTempFile("bot", ".jar");
+            copy.deleteOnExit();
+            Files.copy(file.toPath(), copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            loader = new BotClassLoader(new URL[]{copy.toURI().toURL()});
+        }
+
+        /**
+         * Closes the loader of the jar and the idle loaders of its bots, and deletes its copy;
+         * the bots still playing keep loaders of their own
+         */
+        void retire() {
+            for (Class<? extends Bot> bot : bots)
+                closeIdle(bot);
+            bots.clear();
+            if (loader != null)
+                close(loader);
+            if (copy != null && !copy.delete())
+                copy.deleteOnExit();
+        }
+
+        /**
+         * @return True - if the file of the jar was removed or changed since it was loaded
+         */
+        boolean isStale() {
+            return !file.isFile() || file.lastModified() != lastModified || file.length() != length;
+        }
+    }
+
+    /**
+     * Load bots from the jars of a directory too, see {@link #scan(List)}
+     *
+     * @param directory directory of bot jars
+     */
+    public static synchronized void setBotDirectory(File directory) {
+        botDirectory = directory;
+    }
+
+    /**
+     * @return True - if bots are loaded from the jars of a directory
+     */
+    public static synchronized boolean hasBotDirectory() {
+        return botDirectory != null;
+    }
+
+    /**
+     * Create the bots on the class path with a loader of their own, like the bots of the bot directory
+     *
+     * @param isolate True - to isolate the bots on the class path
+     */
+    public static void setIsolated(boolean isolate) {
+        isolated = isolate;
+    }
 
     /**
      * Fetches the class given the name of the class and the package,
-     * the class would be taken from the classpath and could be dynamically
+     * the class would be taken from the bot directory or the classpath and could be dynamically
      * added after the game is compiled.
      *
      * @param classBinName The name of the Bot class to load.
      * @return An instance of the Bot class
      */
     public Class<? extends Bot> getBotClass(String classBinName) {
+        if (hasBotDirectory()) {
+            scan(null);
+            synchronized (BotLoader.class) {
+                Class<? extends Bot> bot = findLoaded(classBinName);
+                if (bot != null)
+                    return bot;
+            }
+        }
+
         try {
             // Create a new JavaClassLoader
             ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
 
-            // Load the target class using its binary name
-            Class<?> loadedMyClass = classLoader.loadClass(classBinName);
+            // Load the target class using its binary name, linking and verifying it
+            Class<?> loadedMyClass = Class.forName(classBinName, true, classLoader);
             boolean isBot = Arrays.asList(loadedMyClass.getInterfaces()).contains(Bot.class);
             if (isBot) {
                 System.out.println("Loaded bot.");
@@ -41,4 +174,298 @@ public class BotLoader extends ClassLoader {
 
         return null;
     }
+
+    /**
+     * Fetches the classes of several bots in parallel, see {@link #getBotClass(String)}
+     *
+     * @param classBinNames The names of the Bot classes to load.
+     * @return the Bot classes, null for those that cannot be loaded
+     * @throws InterruptedException if interrupted while loading
+     */
+    public List<Class<? extends Bot>> getBotClasses(List<String> classBinNames) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(classBinNames.size(), Runtime.getRuntime().availableProcessors())));
+        try {
+            List<Future<Class<? extends Bot>>> futures = new ArrayList<>();
+            for (final String name : classBinNames)
+                futures.add(pool.submit(new Callable<Class<? extends Bot>>() {
+                    @Override
+                    public Class<? extends Bot> call() {
+                        return getBotClass(name);
+                    }
+                }));
+            List<Class<? extends Bot>> classes = new ArrayList<>();
+            for (Future<Class<? extends Bot>> future : futures)
+                classes.add(get(future));
+            return classes;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Loads the jars that were added to the bot directory since the last scan, in parallel,
+     * and retires those that were removed or replaced. A replaced jar is retired and loaded again.
+     * Bot classes are named by the {@value #BOT_CLASS_ATTRIBUTE} attribute of the jar's manifest,
+     * separated by commas; without it, every concrete class of the jar implementing {@link Bot} is a bot
+     *
+     * @param retired list to add the classes of the retired bots to, or null
+     * @return classes of the bots that were added
+     */
+    public static synchronized List<Class<? extends Bot>> scan(List<Class<? extends Bot>> retired) {
+        List<Class<? extends Bot>> added = new ArrayList<>();
+        if (botDirectory == null)
+            return added;
+
+        for (BotJar jar : new ArrayList<>(jars.values())) {
+            if (jar.isStale()) {
+                jars.remove(jar.file);
+                if (retired != null)
+                    retired.addAll(jar.bots);
+                jar.retire();
+            }
+        }
+
+        File[] files = botDirectory.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.endsWith(".jar");
+            }
+        });
+        if (files == null) {
+            System.out.println("Cannot list the bot directory " + botDirectory);
+            return added;
+        }
+        Arrays.sort(files);
+        List<File> fresh = new ArrayList<>();
+        for (File file : files)
+            if (file.isFile() && !jars.containsKey(file))
+                fresh.add(file);
+        if (fresh.isEmpty())
+            return added;
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(fresh.size(), Runtime.getRuntime().availableProcessors()));
+        try {
+            List<Future<BotJar>> futures = new ArrayList<>();
+            for (final File file : fresh)
+                futures.add(pool.submit(new Callable<BotJar>() {
+                    @Override
+                    public BotJar call() {
+                        return load(file);
+                    }
+                }));
+            for (Future<BotJar> future : futures) {
+                BotJar jar = get(future);
+                for (Class<? extends Bot> bot : jar.bots) {
+                    if (findLoaded(bot.getName()) != null) {
+                        System.out.println("Bot " + bot.getName() + " of " + jar.file + " is already loaded from another jar, the jar is ignored");
+                        jar.retire();
+                        break;
+                    }
+                }
+                jars.put(jar.file, jar); // a broken or ignored jar is tried again when it changes
+                added.addAll(jar.bots);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            pool.shutdown();
+        }
+        return added;
+    }
+
+    /**
+     * Loads a jar and links and verifies its bot classes
+     *
+     * @param file the jar
+     * @return the jar, without bots if it is broken or has none
+     */
+    private static BotJar load(File file) {
+        BotJar botJar = new BotJar(file);
+        try {
+            botJar.open();
+        } catch (IOException e) {
+            System.out.println("Cannot copy bot jar " + file + ": " + e);
+            botJar.retire();
+            return botJar;
+        }
+        try (JarFile jar = new JarFile(botJar.copy)) {
+            List<String> names = new ArrayList<>();
+            Manifest manifest = jar.getManifest();
+            String attribute = manifest == null ? null : manifest.getMainAttributes().getValue(new Attributes.Name(BOT_CLASS_ATTRIBUTE));
+            if (attribute != null) {
+                for (String name : attribute.split(","))
+                    if (!name.trim().isEmpty())
+                        names.add(name.trim());
+            } else {
+                for (Enumeration<JarEntry> e = jar.entries(); e.hasMoreElements(); ) {
+                    String entry = e.nextElement().getName();
+                    if (entry.endsWith(".class") && !entry.equals("module-info.class"))
+                        names.add(entry.substring(0, entry.length() - ".class".length()).replace('/', '.'));
+                }
+            }
+
+            for (String name : names) {
+                Class<?> loaded = botJar.loader.loadClass(name);
+                if (!Bot.class.isAssignableFrom(loaded) || loaded.isInterface() || Modifier.isAbstract(loaded.getModifiers())) {
+                    if (attribute != null)
+                        throw new ClassCastException(name + " does not implement " + Bot.class.getName());
+                    continue;
+                }
+                Class<? extends Bot> bot = Class.forName(name, true, botJar.loader).asSubclass(Bot.class);
+                bot.getConstructor(); // bots are created by their public constructor without parameters
+                botJar.bots.add(bot);
+                System.out.println("Loaded bot " + bot.getName() + " from " + file);
+            }
+            if (botJar.bots.isEmpty())
+                throw new ClassNotFoundException("No bot in " + file);
+            return botJar;
+        } catch (Exception | LinkageError e) {
+            System.out.println("Cannot load bot jar " + file + ": " + e);
+            botJar.retire();
+            return botJar;
+        }
+    }
+
+    /**
+     * @param name binary name of a bot class
+     * @return the class, if it was loaded from a jar of the bot directory
+     */
+    private static Class<? extends Bot> findLoaded(String name) {
+        for (BotJar jar : jars.values())
+            for (Class<? extends Bot> bot : jar.bots)
+                if (bot.getName().equals(name))
+                    return bot;
+        return null;
+    }
+
+    /**
+     * Check whether a bot class can still be played, because it is on the class path,
+     * or its jar is still in the bot directory unchanged
+     *
+     * @param bot class of a bot
+     * @return False - if the bot was retired or is about to be
+     */
+    public static synchronized boolean isCurrent(Class<? extends Bot> bot) {
+        if (!(bot.getClassLoader() instanceof BotClassLoader))
+            return true;
+        for (BotJar jar : jars.values())
+            if (jar.loader == bot.getClassLoader())
+                return !jar.isStale();
+        return false;
+    }
+
+    /**
+     * Retire a bot of the bot directory before its jar is removed, such as a quarantined bot:
+     * its loader is closed and dropped, and the jar is ignored until it changes
+     *
+     * @param bot class of the bot
+     */
+    public static synchronized void retire(Class<? extends Bot> bot) {
+        closeIdle(bot);
+        for (BotJar jar : jars.values()) {
+            if (jar.loader == bot.getClassLoader())
+                jar.retire();
+        }
+    }
+
+    /**
+     * Creates a bot, with a loader of its own if it comes from the bot directory
+     * or the bots are isolated: the loader of a previous instance whose game is over,
+     * or a new one if there is none
+     *
+     * @param botClass class of the bot, as found by {@link #getBotClass(String)} or {@link #scan(List)}
+     * @return the bot
+     */
+    public static Bot newBot(Class<? extends Bot> botClass) throws NoSuchMethodException, IllegalAccessException, InvocationTargetException, InstantiationException {
+        URL[] urls;
+        if (botClass.getClassLoader() instanceof BotClassLoader)
+            urls = ((BotClassLoader) botClass.getClassLoader()).getURLs();
+        else if (isolated && botClass.getProtectionDomain().getCodeSource() != null)
+            urls = new URL[]{botClass.getProtectionDomain().getCodeSource().getLocation()};
+        else
+            return botClass.getConstructor().newInstance();
+
+        BotClassLoader loader;
+        synchronized (BotLoader.class) {
+            ArrayDeque<BotClassLoader> loaders = idle.get(botClass);
+            loader = loaders == null ? null : loaders.pollFirst();
+        }
+        if (loader == null)
+            loader = new BotClassLoader(urls);
+        try {
+            Bot bot = Class.forName(botClass.getName(), true, loader).asSubclass(Bot.class).getConstructor().newInstance();
+            synchronized (BotLoader.class) {
+                lent.put(loader, botClass);
+            }
+            return bot;
+        } catch (ClassNotFoundException e) {
+            close(loader);
+            InstantiationException failure = new InstantiationException("Cannot load " + botClass.getName() + " again");
+            failure.initCause(e);
+            throw failure;
+        } catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+            close(loader);
+            throw e;
+        }
+    }
+
+    /**
+     * Gives the loader of a bot created by {@link #newBot(Class)} back, once its game is over, to
+     * create the next instance of the bot with. The loader is closed instead if the bot was
+     * retired or quarantined, as a thread of the bot may still be running
+     *
+     * @param bot the bot
+     */
+    public static synchronized void release(Bot bot) {
+        if (!(bot.getClass().getClassLoader() instanceof BotClassLoader))
+            return;
+        BotClassLoader loader = (BotClassLoader) bot.getClass().getClassLoader();
+        Class<? extends Bot> botClass = lent.remove(loader);
+        if (botClass == null)
+            return; // the loader of a jar, or released already
+        if (!isCurrent(botClass) || DecisionExecutor.isQuarantined(botClass)) {
+            close(loader);
+            return;
+        }
+        ArrayDeque<BotClassLoader> loaders = idle.get(botClass);
+        if (loaders == null)
+            idle.put(botClass, loaders = new ArrayDeque<>());
+        loaders.addFirst(loader);
+    }
+
+    /**
+     * Closes the loaders kept for the next instances of a bot
+     *
+     * @param bot class of the bot
+     */
+    private static void closeIdle(Class<? extends Bot> bot) {
+        ArrayDeque<BotClassLoader> loaders = idle.remove(bot);
+        if (loaders != null)
+            for (BotClassLoader loader : loaders)
+                close(loader);
+    }
+
+    /**
+     * @param loader a loader to close
+     */
+    private static void close(BotClassLoader loader) {
+        try {
+            loader.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * @param future result of a task that does not throw
+     * @return the result
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private static <T> T get(Future<T> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
 }
@@ -1,16 +1,98 @@
 package snakes;
 
-import java.util.Objects;
-
 /**
  * Implements coordinate of a cell on the game boar
+ * <p>
+ * The coordinates of the largest board in use, and of the cells just outside it,
+ * are cached: {@link #of(int, int)} and {@link #moveTo(Direction)} return those
+ * canonical instances instead of allocating. Coordinates are still compared by
+ * value, so instances created with the constructor work as before
  */
 public class Coordinate implements Comparable<Coordinate> {
     public final int x, y;
 
+    private static final int DIRECTIONS = 4; // Direction.values().length, which may not be initialized yet
+    private static volatile Cache cache; // replaced by a larger one when a larger board is reserved
+
+    private final Cache owner; // the cache this coordinate belongs to, or null
+    private final int index;   // position of this coordinate in its cache
+
     public Coordinate(int x, int y) {
+        this(x, y, null, -1);
+    }
+
+    private Coordinate(int x, int y, Cache owner, int index) {
         this.x = x;
         this.y = y;
+        this.owner = owner;
+        this.index = index;
+    }
+
+    /**
+     * Canonical coordinates of the cells from (-1, -1) to (width, height),
+     * and a table of the neighbours of each in the order of {@link Direction#values()}
+     */
+    private static class Cache {
+        final int width, height; // size of the covered board
+        final Coordinate[] coordinates;
+        final Coordinate[] neighbours;
+
+        Cache(int width, int height) {
+            this.width = width;
+            this.height = height;
+            int w = width + 2;
+            coordinates = new Coordinate[w * (height + 2)];
+            for (int i = 0; i < coordinates.length; i++)
+                coordinates[i] = new Coordinate(i % w - 1, i / w - 1, this, i);
+
+            neighbours = new Coordinate[coordinates.length * DIRECTIONS];
+            for (Coordinate c : coordinates)
+                for (Direction d : Direction.values())
+                    neighbours[c.index * DIRECTIONS + d.ordinal()] = get(c.x + d.dx, c.y + d.dy);
+        }
+
+        /**
+         * @return the canonical coordinate, or null if the cell is not covered
+         */
+        Coordinate get(int x, int y) {
+            if (x < -1 || y < -1 || x > width || y > height)
+                return null;
+            return coordinates[(y + 1) * (width + 2) + x + 1];
+        }
+    }
+
+    /**
+     * Make sure the coordinates of a board are cached
+     *
+     * @param mazeSize size of the game board
+     */
+    public static void reserve(Coordinate mazeSize) {
+        if (!covers(cache, mazeSize))
+            grow(mazeSize);
+    }
+
+    private static boolean covers(Cache c, Coordinate mazeSize) {
+        return c != null && c.width >= mazeSize.x && c.height >= mazeSize.y;
+    }
+
+    private static synchronized void grow(Coordinate mazeSize) {
+        Cache c = cache;
+        if (covers(c, mazeSize))
+            return;
+        cache = new Cache(Math.max(mazeSize.x, c == null ? 0 : c.width), Math.max(mazeSize.y, c == null ? 0 : c.height));
+    }
+
+    /**
+     * Get a coordinate, without allocating if it is cached
+     *
+     * @param x column
+     * @param y row
+     * @return the canonical coordinate if the cell is cached, otherwise a new one
+     */
+    public static Coordinate of(int x, int y) {
+        Cache c = cache;
+        Coordinate coordinate = c == null ? null : c.get(x, y);
+        return coordinate != null ? coordinate : new Coordinate(x, y);
     }
 
     /**
@@ -21,7 +103,7 @@ public class Coordinate implements Comparable<Coordinate> {
      * @return result of summation of coordinates
      */
     public static Coordinate add(Coordinate a, Coordinate b) {
-        return new Coordinate(a.x + b.x, a.y + b.y);
+        return of(a.x + b.x, a.y + b.y);
     }
 
 
@@ -32,7 +114,13 @@ public class Coordinate implements Comparable<Coordinate> {
      * @return a moved coordinate
      */
     public Coordinate moveTo(Direction d) {
-        return add(this, d.v);
+        // the owner may have been replaced by a larger cache, but its neighbours are still right
+        if (owner != null) {
+            Coordinate neighbour = owner.neighbours[index * DIRECTIONS + d.ordinal()];
+            if (neighbour != null)
+                return neighbour;
+        }
+        return of(x + d.dx, y + d.dy);
     }
 
     /**
@@ -41,10 +129,11 @@ public class Coordinate implements Comparable<Coordinate> {
      * @return direction
      */
     public Direction getDirection(Coordinate other) {
-        final Coordinate vector = new Coordinate(other.x - this.x, other.y - this.y);
-        for (Direction direction : Direction.values())
-            if (direction.dx == vector.x && direction.dy == vector.y)
-                return direction;
+        int dx = other.x - this.x, dy = other.y - this.y;
+        if (dx == 0 && dy == 1) return Direction.UP;
+        if (dx == 0 && dy == -1) return Direction.DOWN;
+        if (dx == 1 && dy == 0) return Direction.RIGHT;
+        if (dx == -1 && dy == 0) return Direction.LEFT;
         return null;
     }
 
@@ -76,13 +165,13 @@ public class Coordinate implements Comparable<Coordinate> {
 
 
     /**
-     * Compute hash code for coordinates
+     * Compute hash code for coordinates, distinct for all coordinates within 16 bits
      *
      * @return hashcode
      */
     @Override
     public int hashCode() {
-        return Objects.hash(x, y);
+        return x << 16 | (y & 0xFFFF);
     }
 
 
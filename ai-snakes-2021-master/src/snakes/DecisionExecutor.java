@@ -0,0 +1,279 @@
+package snakes;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * This class is responsible for running the decisions of one bot on a single
+ * long-lived thread, instead of a new thread per game step.
+ * A thread that does not stop after being interrupted is left behind as an
+ * orphan, and its bot is quarantined.
+ * <p>
+ * A decision is either limited by a wall-clock deadline, or charged for the CPU time its thread
+ * uses, as read from the {@link ThreadMXBean}, within a wall-clock cap, so a bot does not lose
+ * on time because other games keep the CPUs busy or the garbage collector paused it
+ */
+public class DecisionExecutor {
+    /**
+     * Time a bot gets to stop after being interrupted, before its thread is orphaned
+     */
+    private static final long STOP_GRACE_PERIOD = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private static final int IDLE = 0, REQUESTED = 1, DONE = 2, SHUTDOWN = 3;
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    // memory allocated by threads, null if the JVM cannot measure it
+    private static final com.sun.management.ThreadMXBean ALLOCATIONS = allocationBean();
+    private static final AtomicInteger orphanedThreads = new AtomicInteger();
+    private static final Set<String> quarantinedBots = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    private final SnakesRunner runner;
+    private final String botName;
+    private final SubprocessBot subprocess; // bot running in a JVM of its own, stopped when out of time
+    private final Thread thread;
+    private final AtomicInteger state = new AtomicInteger(IDLE);
+    private volatile Thread waiter;
+    private volatile boolean orphaned = false;
+    private long startCpuNanos = -1; // CPU time of the thread when the decision was requested, -1 if it is not charged
+    public volatile Throwable failure;
+    public long cpuNanos; // CPU time the last decision was charged, if it was requested so
+
+    /**
+     * Creates the executor and starts its thread
+     * @param runner runner taking the decisions of the bot
+     * @param bot    the bot taking the decisions
+     */
+    public DecisionExecutor(SnakesRunner runner, Bot bot) {
+        Class<?> botClass = bot instanceof SubprocessBot ? ((SubprocessBot) bot).botClass : bot.getClass();
+        this.runner = runner;
+        this.botName = botClass.getName();
+        this.subprocess = bot instanceof SubprocessBot ? (SubprocessBot) bot : null;
+        this.thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                work();
+            }
+        }, "bot-" + botClass.getSimpleName());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Loop of the executor's thread: waits for a request and takes the decision
+     */
+    private void work() {
+        while (true) {
+            int s;
+            while ((s = state.get()) != REQUESTED && s != SHUTDOWN)
+                LockSupport.park(this);
+            if (s == SHUTDOWN)
+                return;
+
+            Thread.interrupted(); // forget an interruption that arrived after the previous decision
+            try {
+                runner.run();
+            } catch (Throwable t) {
+                failure = t;
+            }
+
+            if (state.compareAndSet(REQUESTED, DONE))
+                LockSupport.unpark(waiter);
+        }
+    }
+
+    /**
+     * Hands a decision request to the executor's thread, without waiting for it.
+     * The runner must be set up for the request beforehand
+     */
+    public void request() {
+        request(false);
+    }
+
+    /**
+     * Hands a decision request to the executor's thread, without waiting for it.
+     * The runner must be set up for the request beforehand
+     * @param chargeCpuTime True - to measure the CPU time of the decision, see {@link #await(long, long)}
+     */
+    public void request(boolean chargeCpuTime) {
+        if (orphaned)
+            throw new IllegalStateException("Executor of " + botName + " has been orphaned");
+        failure = null;
+        cpuNanos = 0;
+        startCpuNanos = chargeCpuTime ? THREADS.getThreadCpuTime(thread.getId()) : -1;
+        waiter = Thread.currentThread();
+        state.set(REQUESTED);
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * Waits until the requested decision is taken, interrupting the bot at the deadline
+     * @param deadline time in mills at which the decision must be taken
+     * @return false - if the decision was not taken in time
+     */
+    public boolean await(long deadline) throws InterruptedException {
+        return await(deadline, 0);
+    }
+
+    /**
+     * Waits until the requested decision is taken, interrupting the bot once its thread has used
+     * up its CPU time, or at the deadline. The CPU time is only charged if the decision was
+     * requested so; threads that the bot starts itself are only limited by the deadline
+     * @param deadline      time in mills at which the decision must be taken
+     * @param cpuLimitNanos CPU time the decision may take, 0 to only wait for the deadline
+     * @return false - if the decision was not taken in time
+     */
+    public boolean await(long deadline, long cpuLimitNanos) throws InterruptedException {
+        long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadline - System.currentTimeMillis());
+        boolean decided = cpuLimitNanos > 0 && startCpuNanos >= 0
+                ? awaitCpuNanos(cpuLimitNanos, deadlineNanos)
+                : awaitNanos(deadlineNanos);
+        if (startCpuNanos >= 0)
+            cpuNanos = Math.max(0, THREADS.getThreadCpuTime(thread.getId()) - startCpuNanos);
+        if (decided) {
+            state.compareAndSet(DONE, IDLE);
+            return true;
+        }
+
+        // out of time: ask the bot to stop, and give up on its thread if it does not
+        if (subprocess != null)
+            subprocess.abort(); // the thread is blocked reading the reply, which ends with the JVM
+        thread.interrupt();
+        if (awaitNanos(System.nanoTime() + STOP_GRACE_PERIOD)) {
+            state.compareAndSet(DONE, IDLE);
+        } else {
+            orphaned = true;
+            shutdown(); // the thread ends as soon as the bot returns, if ever
+            thread.setPriority(Thread.MIN_PRIORITY);
+            orphanedThreads.incrementAndGet();
+            quarantinedBots.add(botName);
+            System.out.println(thread.getName() + " did not stop after being interrupted, " + botName + " is quarantined");
+        }
+        return false;
+    }
+
+    /**
+     * Waits until the decision is taken or the time is up
+     * @param deadlineNanos {@link System#nanoTime()} at which to stop waiting
+     * @return True - if the decision was taken
+     */
+    private boolean awaitNanos(long deadlineNanos) throws InterruptedException {
+        while (state.get() != DONE) {
+            long remaining = deadlineNanos - System.nanoTime();
+            if (remaining <= 0)
+                return false;
+            LockSupport.parkNanos(this, remaining);
+            if (Thread.interrupted())
+                throw new InterruptedException();
+        }
+        return true;
+    }
+
+    /**
+     * Waits until the decision is taken, the thread has used up its CPU time or the time is up.
+     * A thread cannot use more CPU time than the time that passes, so the waiter sleeps as long
+     * as the CPU time left, and reads the CPU time of the thread only once it wakes up
+     * @param cpuLimitNanos CPU time the decision may take
+     * @param deadlineNanos {@link System#nanoTime()} at which to stop waiting
+     * @return True - if the decision was taken
+     */
+    private boolean awaitCpuNanos(long cpuLimitNanos, long deadlineNanos) throws InterruptedException {
+        while (state.get() != DONE) {
+            long remaining = deadlineNanos - System.nanoTime();
+            long cpu = THREADS.getThreadCpuTime(thread.getId());
+            if (cpu >= 0)
+                remaining = Math.min(remaining, cpuLimitNanos - (cpu - startCpuNanos));
+            if (remaining <= 0)
+                return state.get() == DONE;
+            LockSupport.parkNanos(this, remaining);
+            if (Thread.interrupted())
+                throw new InterruptedException();
+        }
+        return true;
+    }
+
+    /**
+     * Charge the decisions for the CPU time of their threads, if the JVM can measure it
+     * @return True - if the CPU time of threads can be measured
+     */
+    public static boolean enableCpuTime() {
+        if (!THREADS.isThreadCpuTimeSupported())
+            return false;
+        if (!THREADS.isThreadCpuTimeEnabled())
+            THREADS.setThreadCpuTimeEnabled(true);
+        return true;
+    }
+
+    /**
+     * @return the bean that measures the memory allocated by threads, or null if the JVM cannot measure it
+     */
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        try {
+            if (THREADS instanceof com.sun.management.ThreadMXBean
+                    && ((com.sun.management.ThreadMXBean) THREADS).isThreadAllocatedMemorySupported())
+                return (com.sun.management.ThreadMXBean) THREADS;
+        } catch (LinkageError e) {
+            // not a HotSpot JVM
+        }
+        return null;
+    }
+
+    /**
+     * @return bytes allocated by the current thread so far, or -1 if the JVM cannot measure it
+     */
+    static long allocatedBytes() {
+        return ALLOCATIONS != null ? ALLOCATIONS.getThreadAllocatedBytes(Thread.currentThread().getId()) : -1;
+    }
+
+    /**
+     * Stops the executor's thread once it has finished its current decision
+     */
+    public void shutdown() {
+        state.set(SHUTDOWN);
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * @return True - if the thread of this executor did not stop after being interrupted
+     */
+    public boolean isOrphaned() {
+        return orphaned;
+    }
+
+    /**
+     * @return number of bot threads that did not stop after being interrupted
+     */
+    public static int getOrphanedThreadCount() {
+        return orphanedThreads.get();
+    }
+
+    /**
+     * Check whether a bot has been quarantined, because one of its threads did not stop
+     * @param bot class of the bot
+     * @return True - if the bot should not play anymore
+     */
+    public static boolean isQuarantined(Class<? extends Bot> bot) {
+        return quarantinedBots.contains(bot.getName());
+    }
+
+    /**
+     * Quarantine a bot whose thread was orphaned in another JVM, see {@link WorkerPool}
+     * @param botName class name of the bot
+     */
+    static void quarantine(String botName) {
+        if (quarantinedBots.add(botName))
+            orphanedThreads.incrementAndGet();
+    }
+
+    /**
+     * @return names of the quarantined bot classes
+     */
+    public static Set<String> getQuarantinedBots() {
+        return Collections.unmodifiableSet(quarantinedBots);
+    }
+}
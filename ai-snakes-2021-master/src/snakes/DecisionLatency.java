@@ -0,0 +1,172 @@
+package snakes;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Implements the decision latencies of one bot, in one game or summed over a tournament:
+ * a {@link LatencyHistogram} of all decisions, and the near misses, decisions that took
+ * more than 80%, 90% or 95% of the time a bot has for a decision.
+ * <p>
+ * It also sums the memory the decisions allocated, where the JVM can measure it, since a bot
+ * that allocates a lot triggers garbage collections that pause the other bots as well
+ */
+public class DecisionLatency {
+    public static final String CSV_HEADER = "decisions,p50_ms,p99_ms,p999_ms,max_ms,over80,over90,over95,timeouts,"
+            + "allocated_bytes,max_allocated_bytes,over_allocation_budget";
+
+    public final long budgetNanos; // time a bot has for a decision
+    public final LatencyHistogram histogram = new LatencyHistogram();
+    public long over80 = 0, over90 = 0, over95 = 0;
+    public long timeouts = 0; // decisions not taken in time
+    public long allocations = 0; // decisions whose allocated memory was measured
+    public long allocatedBytes = 0, maxAllocatedBytes = 0; // memory allocated by them in total, and by the largest
+    public long overAllocationBudget = 0; // decisions that allocated more than the allocation budget
+
+    /**
+     * @param budgetNanos time a bot has for a decision, in nanoseconds
+     */
+    public DecisionLatency(long budgetNanos) {
+        this.budgetNanos = budgetNanos;
+    }
+
+    /**
+     * Count a decision
+     *
+     * @param nanos    time the decision took, or the time until the bot was given up on
+     * @param timedOut True - if the decision was not taken in time
+     */
+    public void record(long nanos, boolean timedOut) {
+        histogram.record(nanos);
+        if (timedOut)
+            timeouts++;
+        if (nanos * 100 > budgetNanos * 80)
+            over80++;
+        if (nanos * 100 > budgetNanos * 90)
+            over90++;
+        if (nanos * 100 > budgetNanos * 95)
+            over95++;
+    }
+
+    /**
+     * Count the memory a decision allocated
+     *
+     * @param bytes      bytes allocated by the decision
+     * @param overBudget True - if the decision allocated more than its budget
+     */
+    public void recordAllocation(long bytes, boolean overBudget) {
+        allocations++;
+        allocatedBytes += bytes;
+        maxAllocatedBytes = Math.max(maxAllocatedBytes, bytes);
+        if (overBudget)
+            overAllocationBudget++;
+    }
+
+    /**
+     * Add all decisions counted by another one to this one
+     *
+     * @param other latencies of the same bot, with the same budget
+     */
+    public void add(DecisionLatency other) {
+        histogram.add(other.histogram);
+        over80 += other.over80;
+        over90 += other.over90;
+        over95 += other.over95;
+        timeouts += other.timeouts;
+        allocations += other.allocations;
+        allocatedBytes += other.allocatedBytes;
+        maxAllocatedBytes = Math.max(maxAllocatedBytes, other.maxAllocatedBytes);
+        overAllocationBudget += other.overAllocationBudget;
+    }
+
+    /**
+     * Write the latencies, to be read in another JVM
+     *
+     * @param out stream to write to
+     * @throws IOException if the stream cannot be written
+     */
+    public void write(DataOutput out) throws IOException {
+        out.writeLong(budgetNanos);
+        histogram.write(out);
+        out.writeLong(over80);
+        out.writeLong(over90);
+        out.writeLong(over95);
+        out.writeLong(timeouts);
+        out.writeLong(allocations);
+        out.writeLong(allocatedBytes);
+        out.writeLong(maxAllocatedBytes);
+        out.writeLong(overAllocationBudget);
+    }
+
+    /**
+     * Read latencies written by {@link #write(DataOutput)}
+     *
+     * @param in stream to read from
+     * @return the latencies
+     * @throws IOException if the stream cannot be read
+     */
+    public static DecisionLatency read(DataInput in) throws IOException {
+        DecisionLatency latency = new DecisionLatency(in.readLong());
+        latency.histogram.read(in);
+        latency.over80 = in.readLong();
+        latency.over90 = in.readLong();
+        latency.over95 = in.readLong();
+        latency.timeouts = in.readLong();
+        latency.allocations = in.readLong();
+        latency.allocatedBytes = in.readLong();
+        latency.maxAllocatedBytes = in.readLong();
+        latency.overAllocationBudget = in.readLong();
+        return latency;
+    }
+
+    /**
+     * @param nanos duration in nanoseconds
+     * @return the duration in milliseconds, with three decimals
+     */
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+
+    /**
+     * @param bytes amount of memory in bytes
+     * @return the amount in megabytes, with three decimals
+     */
+    private static String megabytes(long bytes) {
+        return String.format(Locale.ROOT, "%.3f", bytes / (1024.0 * 1024.0));
+    }
+
+    /**
+     * @param bytes amount of memory in bytes
+     * @return the amount in kilobytes, with one decimal
+     */
+    private static String kilobytes(long bytes) {
+        return String.format(Locale.ROOT, "%.1f", bytes / 1024.0);
+    }
+
+    /**
+     * @return one line for the results, durations in milliseconds, memory in megabytes in total and kilobytes per decision
+     */
+    @Override
+    public String toString() {
+        String latencies = String.format("%d decisions, p50 %s ms, p99 %s ms, p99.9 %s ms, max %s ms, over 80/90/95%% of %s ms: %d/%d/%d, timeouts %d",
+                histogram.count(), millis(histogram.valueAtPercentile(50)), millis(histogram.valueAtPercentile(99)),
+                millis(histogram.valueAtPercentile(99.9)), millis(histogram.max()), millis(budgetNanos),
+                over80, over90, over95, timeouts);
+        if (allocations == 0)
+            return latencies;
+        return latencies + String.format(", allocated %s MB, %s KB per decision, max %s KB, over budget %d",
+                megabytes(allocatedBytes), kilobytes(allocatedBytes / allocations), kilobytes(maxAllocatedBytes), overAllocationBudget);
+    }
+
+    /**
+     * @return the columns of {@link #CSV_HEADER}, durations in milliseconds
+     */
+    public String toCsv() {
+        return histogram.count() + "," + millis(histogram.valueAtPercentile(50)) + "," + millis(histogram.valueAtPercentile(99))
+                + "," + millis(histogram.valueAtPercentile(99.9)) + "," + millis(histogram.max())
+                + "," + over80 + "," + over90 + "," + over95 + "," + timeouts
+                + "," + allocatedBytes + "," + maxAllocatedBytes + "," + overAllocationBudget;
+    }
+}
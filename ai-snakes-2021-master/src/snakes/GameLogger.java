@@ -0,0 +1,273 @@
+package snakes;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class is responsible for the log of one game.
+ * Every game is logged to its own file; the lines of all games are written
+ * by one background thread in batches, so logging never opens files or
+ * waits for the disk on the game's thread. If the writer falls behind,
+ * logging blocks until the pending lines fit into a bounded buffer again
+ */
+public class GameLogger {
+    /**
+     * What is written to the log of a game
+     */
+    public enum Verbosity {
+        FULL,  // the board before every step, the moves and the result
+        MOVES, // the moves and the result
+        OFF    // nothing
+    }
+
+    private static final File LOG_DIRECTORY = new File("logs", "games");
+    private static final int MAX_PENDING_CHARS = 1 << 22; // at most 8 MB of lines wait for the writer
+    private static final int MAX_BATCH_SIZE = 1024; // lines written between two flushes
+    private static final long DRAIN_TIMEOUT = 10; // time to write pending lines at shutdown in seconds
+
+    private static final LinkedBlockingQueue<Line> queue = new LinkedBlockingQueue<>();
+    private static final Semaphore pendingChars = new Semaphore(MAX_PENDING_CHARS);
+    private static final AtomicLong pendingLines = new AtomicLong();
+    private static volatile Verbosity defaultVerbosity = Verbosity.FULL;
+    private static Thread writer;
+
+    public final Verbosity verbosity;
+    private final File file;
+    private Writer out; // only used by the writer thread
+    private boolean failed = false; // only used by the writer thread
+
+    /**
+     * One line of a log, or the end of the log if text is null
+     */
+    private static class Line {
+        final GameLogger log;
+        final String text;
+
+        Line(GameLogger log, String text) {
+            this.log = log;
+            this.text = text;
+        }
+    }
+
+    /**
+     * Create the log of a game
+     *
+     * @param file      file to write the log to
+     * @param verbosity what to write to the log
+     */
+    private GameLogger(File file, Verbosity verbosity) {
+        this.file = file;
+        this.verbosity = verbosity;
+    }
+
+    /**
+     * Create the log of a new game with the default verbosity
+     *
+     * @param name name of the game, used as file name
+     * @return log of the game
+     */
+    public static GameLogger open(String name) {
+        return new GameLogger(new File(LOG_DIRECTORY, name + ".txt"), defaultVerbosity);
+    }
+
+    /**
+     * Create a log that writes nothing
+     *
+     * @return log with verbosity OFF
+     */
+    public static GameLogger disabled() {
+        return new GameLogger(null, Verbosity.OFF);
+    }
+
+    /**
+     * Set the verbosity of games created from now on
+     *
+     * @param verbosity what to write to the logs
+     */
+    public static void setDefaultVerbosity(Verbosity verbosity) {
+        defaultVerbosity = verbosity;
+    }
+
+    /**
+     * @return True - if the board is written before every step
+     */
+    public boolean logsBoard() {
+        return verbosity == Verbosity.FULL;
+    }
+
+    /**
+     * @return True - if the moves and the result are written
+     */
+    public boolean logsMoves() {
+        return verbosity != Verbosity.OFF;
+    }
+
+    /**
+     * Append a line to the log
+     *
+     * @param text text of the line
+     */
+    public void log(String text) {
+        if (verbosity != Verbosity.OFF)
+            enqueue(new Line(this, text));
+    }
+
+    /**
+     * End the log; the file is closed once its lines are written
+     */
+    public void close() {
+        if (verbosity != Verbosity.OFF)
+            enqueue(new Line(this, null));
+    }
+
+    /**
+     * Hand a line to the writer thread, waiting for space in the buffer if needed
+     *
+     * @param line line to write
+     */
+    private static void enqueue(Line line) {
+        startWriter();
+        pendingChars.acquireUninterruptibly(charCount(line));
+        pendingLines.incrementAndGet();
+        queue.add(line);
+    }
+
+    /**
+     * @return chars a line takes in the buffer (a single line may take all of it)
+     */
+    private static int charCount(Line line) {
+        return line.text == null ? 1 : Math.min(line.text.length() + 1, MAX_PENDING_CHARS);
+    }
+
+    /**
+     * Start the writer thread, unless it is running already
+     */
+    private static synchronized void startWriter() {
+        if (writer != null)
+            return;
+        writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                write();
+            }
+        }, "game-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+            @Override
+            public void run() {
+                drain();
+            }
+        }));
+    }
+
+    /**
+     * Loop of the writer thread: writes the lines in batches and flushes each batch
+     */
+    private static void write() {
+        ArrayList<Line> batch = new ArrayList<>(MAX_BATCH_SIZE);
+        ArrayList<GameLogger> written = new ArrayList<>();
+        while (true) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+
+            for (Line line : batch) {
+                GameLogger log = line.log;
+                if (line.text == null) {
+                    log.closeFile();
+                } else if (log.writeLine(line.text) && !written.contains(log)) {
+                    written.add(log);
+                }
+            }
+            for (GameLogger log : written)
+                log.flush();
+
+            for (Line line : batch)
+                pendingChars.release(charCount(line));
+            pendingLines.addAndGet(-batch.size());
+            batch.clear();
+            written.clear();
+        }
+    }
+
+    /**
+     * Wait until all pending lines are written, for at most DRAIN_TIMEOUT seconds
+     */
+    public static void drain() {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(DRAIN_TIMEOUT);
+        while (pendingLines.get() > 0 && System.nanoTime() < deadline) {
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Write a line to the file, opening it first if needed (writer thread only)
+     *
+     * @param text text of the line
+     * @return True - if the line was written
+     */
+    private boolean writeLine(String text) {
+        if (failed)
+            return false;
+        try {
+            if (out == null) {
+                File dir = file.getParentFile();
+                if (!dir.exists() && !dir.mkdirs())
+                    throw new IOException("Cannot create log directory " + dir);
+                out = new BufferedWriter(new FileWriter(file), 1 << 16);
+            }
+            out.write(text);
+            out.write('\n');
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            failed = true;
+            return false;
+        }
+    }
+
+    /**
+     * Flush the lines written to the file (writer thread only)
+     */
+    private void flush() {
+        if (out == null)
+            return;
+        try {
+            out.flush();
+        } catch (IOException e) {
+            e.printStackTrace();
+            failed = true;
+        }
+    }
+
+    /**
+     * Close the file (writer thread only)
+     */
+    private void closeFile() {
+        if (out == null)
+            return;
+        try {
+            out.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        out = null;
+        failed = true; // nothing is written after the end of the log
+    }
+}
@@ -0,0 +1,22 @@
+package snakes;
+
+import java.util.List;
+import java.util.concurrent.Future;
+
+/**
+ * Plays the games of a tournament round in parallel, see {@link TournamentScheduler}
+ * for threads of this JVM and {@link WorkerPool} for worker JVMs
+ */
+public interface GameScheduler {
+    /**
+     * Schedules games for all pairings
+     * @param schedule pairings to play
+     * @return futures of the played pairings, in the order of the schedule
+     */
+    List<Future<Pairing>> submit(List<Pairing> schedule);
+
+    /**
+     * Stops playing once the scheduled games are finished
+     */
+    void shutdown();
+}
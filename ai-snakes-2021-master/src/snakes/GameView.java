@@ -0,0 +1,253 @@
+package snakes;
+
+import java.util.Arrays;
+
+/**
+ * This class implements a read-only view of the game for one bot, see {@link ViewBot#chooseDirection(GameView)}.
+ * <p>
+ * Cells are numbered {@code y * width + x}. The engine keeps the state behind the views up to date
+ * after every step, in constant time per snake, and all views of a game share it, so reading
+ * the view copies nothing. The view only changes between two decisions of the bot.
+ * <p>
+ * Instead of a list of segments, every snake has the step at which its head entered each cell.
+ * A segment's age is the number of steps since then: the head has age 0 and the tail
+ * {@code length - 1}, so a cell is left by the snake after {@code length - age} steps, unless
+ * the snake grows
+ */
+public final class GameView {
+    public final int you;            // number of the bot's snake
+    public final int snakes;         // number of snakes at the start of the game
+    public final Coordinate mazeSize;
+    public final int width;
+    private final Board board;
+    private Snake[] opponents;       // copy of the opponents handed out, made again when a snake is eliminated
+    private Snake[] opponentsSource; // array of the board the copy was made from
+
+    /**
+     * The state of a game shared by the views of all its bots, maintained by {@link SnakeGame}
+     */
+    static final class Board {
+        private static final int NEVER = Integer.MIN_VALUE / 2; // entry step of cells a snake has not been on
+
+        final Coordinate mazeSize;
+        final Snake[] snakes;
+        final boolean[] onBoard;
+        final byte[] segments;    // snake segments on each cell, shared with the occupancy grid
+        final int[][] entered;    // step at which the head of each snake entered each cell
+        final Snake[][] opponents; // snakes still on the board besides each snake
+        int step = 0;
+        int apple;
+        int appleTTL;
+
+        /**
+         * @param mazeSize size of the board
+         * @param snakes   snakes at the start of the game
+         * @param onBoard  whether each snake is still on the board, shared with the game
+         * @param segments snake segments on each cell, shared with the occupancy grid
+         */
+        Board(Coordinate mazeSize, Snake[] snakes, boolean[] onBoard, byte[] segments) {
+            this.mazeSize = mazeSize;
+            this.snakes = snakes;
+            this.onBoard = onBoard;
+            this.segments = segments;
+            this.entered = new int[snakes.length][];
+            this.opponents = new Snake[snakes.length][];
+            for (int i = 0; i < snakes.length; i++) {
+                entered[i] = new int[segments.length];
+                Arrays.fill(entered[i], NEVER);
+                int age = 0;
+                for (Coordinate c : snakes[i].body)
+                    entered[i][c.y * mazeSize.x + c.x] = -age++; // the tail entered its cell first
+            }
+        }
+
+        /**
+         * Count a step, after the snakes moved
+         */
+        void step() {
+            step++;
+        }
+
+        /**
+         * Update a snake after it moved in the current step
+         *
+         * @param snake number of the snake
+         * @param moved True - if its head entered a new cell
+         */
+        void moved(int snake, boolean moved) {
+            if (moved)
+                entered[snake][snakes[snake].headCell()] = step;
+        }
+
+        /**
+         * @param apple    cell of the apple
+         * @param appleTTL decisions left before the apple moves to another cell
+         */
+        void apple(Coordinate apple, int appleTTL) {
+            this.apple = apple.y * mazeSize.x + apple.x;
+            this.appleTTL = appleTTL;
+        }
+    }
+
+    /**
+     * @param board shared state of the game
+     * @param you   number of the bot's snake
+     */
+    GameView(Board board, int you) {
+        this.board = board;
+        this.you = you;
+        this.snakes = board.snakes.length;
+        this.mazeSize = board.mazeSize;
+        this.width = mazeSize.x;
+    }
+
+    /**
+     * @return cell of a coordinate on the board
+     */
+    public int cell(int x, int y) {
+        return y * width + x;
+    }
+
+    /**
+     * @return column of a cell
+     */
+    public int x(int cell) {
+        return cell % width;
+    }
+
+    /**
+     * @return row of a cell
+     */
+    public int y(int cell) {
+        return cell / width;
+    }
+
+    /**
+     * @return number of steps played so far
+     */
+    public int step() {
+        return board.step;
+    }
+
+    /**
+     * @return cell of the apple
+     */
+    public int apple() {
+        return board.apple;
+    }
+
+    /**
+     * @return coordinate of the apple
+     */
+    public Coordinate appleCoordinate() {
+        return Coordinate.of(x(board.apple), y(board.apple));
+    }
+
+    /**
+     * @return number of decisions, this one included, before the apple moves to another cell unless it is eaten
+     */
+    public int appleTTL() {
+        return board.appleTTL;
+    }
+
+    /**
+     * @param snake number of a snake
+     * @return True - if the snake is still on the board
+     */
+    public boolean onBoard(int snake) {
+        return board.onBoard[snake];
+    }
+
+    /**
+     * @param snake number of a snake
+     * @return cell of its head
+     */
+    public int head(int snake) {
+        return board.snakes[snake].headCell();
+    }
+
+    /**
+     * @param snake number of a snake
+     * @return cell of its tail
+     */
+    public int tail(int snake) {
+        return board.snakes[snake].tailCell();
+    }
+
+    /**
+     * @param snake number of a snake
+     * @return number of its segments
+     */
+    public int length(int snake) {
+        return board.snakes[snake].body.size();
+    }
+
+    /**
+     * @param cell a cell of the board
+     * @return number of snake segments on the cell
+     */
+    public int segments(int cell) {
+        return board.segments[cell];
+    }
+
+    /**
+     * @param cell a cell of the board
+     * @return True - if no snake segment is on the cell
+     */
+    public boolean isFree(int cell) {
+        return board.segments[cell] == 0;
+    }
+
+    /**
+     * @param snake number of a snake
+     * @param cell  a cell of the board
+     * @return steps since the head of the snake entered the cell, or -1 if no segment of the snake is on it
+     */
+    public int age(int snake, int cell) {
+        if (!board.onBoard[snake])
+            return -1;
+        int age = board.step - board.entered[snake][cell];
+        return age >= 0 && age < board.snakes[snake].body.size() ? age : -1;
+    }
+
+    /**
+     * @param cell a cell of the board
+     * @return number of a snake with a segment on the cell, or -1 if it is free
+     */
+    public int occupant(int cell) {
+        if (board.segments[cell] == 0)
+            return -1;
+        for (int i = 0; i < snakes; i++)
+            if (age(i, cell) >= 0)
+                return i;
+        return -1;
+    }
+
+    /**
+     * @return the bot's snake
+     */
+    public Snake snake() {
+        return board.snakes[you];
+    }
+
+    /**
+     * @param snake number of a snake
+     * @return the snake, read-only; take a {@link Snake#snapshot()} to look ahead
+     */
+    public Snake snake(int snake) {
+        return board.snakes[snake];
+    }
+
+    /**
+     * @return all other snakes still on the board, in an array of the view's own, so the bot
+     *         cannot change the board by changing it
+     */
+    public Snake[] opponents() {
+        Snake[] source = board.opponents[you];
+        if (source != opponentsSource) {
+            opponents = source.clone();
+            opponentsSource = source;
+        }
+        return opponents;
+    }
+}
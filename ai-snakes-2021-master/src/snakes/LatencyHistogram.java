@@ -0,0 +1,138 @@
+package snakes;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Implements a histogram of durations in nanoseconds with buckets of logarithmically growing width.
+ * Every power of two is split into {@code 2^SUB_BUCKET_BITS} buckets, so a percentile is
+ * reported within about 3% of the recorded value, in a fixed array of counters.
+ * Recording takes constant time and allocates nothing. A histogram is not thread-safe
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final long MAX_VALUE = (1L << 40) - 1; // about 18 minutes; longer durations are counted here
+    private static final int BUCKETS = index(MAX_VALUE) + 1;
+
+    private final long[] counts = new long[BUCKETS];
+    private long count = 0;
+    private long max = 0;
+
+    /**
+     * @param value duration in nanoseconds, at most MAX_VALUE
+     * @return index of the bucket of the value
+     */
+    private static int index(long value) {
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        if (shift <= 0)
+            return (int) value; // small values have a bucket of their own
+        return (shift << SUB_BUCKET_BITS) + (int) (value >>> shift);
+    }
+
+    /**
+     * @param index index of a bucket
+     * @return largest value counted in the bucket
+     */
+    private static long highestValue(int index) {
+        if (index < 2 * SUB_BUCKETS)
+            return index;
+        int shift = (index >>> SUB_BUCKET_BITS) - 1;
+        long lowest = (long) (index - (shift << SUB_BUCKET_BITS)) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    /**
+     * Count a duration
+     *
+     * @param nanos duration in nanoseconds
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, Math.min(nanos, MAX_VALUE));
+        counts[index(value)]++;
+        count++;
+        if (nanos > max)
+            max = nanos;
+    }
+
+    /**
+     * Add all durations counted by another histogram to this one
+     *
+     * @param other histogram to add
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++)
+            counts[i] += other.counts[i];
+        count += other.count;
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Write the histogram, only its buckets that counted anything
+     *
+     * @param out stream to write to
+     * @throws IOException if the stream cannot be written
+     */
+    public void write(DataOutput out) throws IOException {
+        int buckets = 0;
+        for (long c : counts)
+            if (c != 0)
+                buckets++;
+        out.writeLong(max);
+        out.writeInt(buckets);
+        for (int i = 0; i < BUCKETS; i++)
+            if (counts[i] != 0) {
+                out.writeShort(i);
+                out.writeLong(counts[i]);
+            }
+    }
+
+    /**
+     * Add the durations of a histogram written by {@link #write(DataOutput)} to this one
+     *
+     * @param in stream to read from
+     * @throws IOException if the stream cannot be read
+     */
+    public void read(DataInput in) throws IOException {
+        max = Math.max(max, in.readLong());
+        int buckets = in.readInt();
+        for (int k = 0; k < buckets; k++) {
+            int i = in.readUnsignedShort();
+            long c = in.readLong();
+            counts[i] += c;
+            count += c;
+        }
+    }
+
+    /**
+     * @return number of durations counted
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * @return longest duration counted, in nanoseconds
+     */
+    public long max() {
+        return max;
+    }
+
+    /**
+     * @param percentile percentage of durations, from 0 to 100
+     * @return duration in nanoseconds that this percentage of durations does not exceed, 0 if nothing was counted
+     */
+    public long valueAtPercentile(double percentile) {
+        if (count == 0)
+            return 0;
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank)
+                return Math.min(highestValue(i), max);
+        }
+        return max;
+    }
+}
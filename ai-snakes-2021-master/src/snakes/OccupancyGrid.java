@@ -0,0 +1,156 @@
+package snakes;
+
+import java.util.Random;
+
+/**
+ * Implements the occupancy of the cells of the game board by snake segments.
+ * The free cells are kept in an indexable list, from which a cell is removed by
+ * swapping the last free cell into its place, so a random free cell is found
+ * in constant time no matter how full the board is
+ */
+public class OccupancyGrid {
+    private final Coordinate mazeSize;
+    private final int width;
+    private final byte[] count;   // number of snake segments on each cell, at most one per snake
+    private final int[] free;     // the free cells, in the first freeCount entries
+    private final int[] position; // index of each free cell in free, or -1 if occupied
+    private int freeCount;
+
+    /**
+     * Construct an empty grid
+     *
+     * @param mazeSize size of the board
+     */
+    public OccupancyGrid(Coordinate mazeSize) {
+        this.mazeSize = mazeSize;
+        this.width = mazeSize.x;
+        int area = mazeSize.x * mazeSize.y;
+        count = new byte[area];
+        free = new int[area];
+        position = new int[area];
+        for (int i = 0; i < area; i++) {
+            free[i] = i;
+            position[i] = i;
+        }
+        freeCount = area;
+    }
+
+    /**
+     * Mark all segments of a snake as occupied
+     *
+     * @param snake snake placed on the board
+     */
+    public void occupy(Snake snake) {
+        for (Coordinate c : snake.body)
+            occupy(c);
+    }
+
+    /**
+     * Remove all segments of a snake that leaves the board
+     *
+     * @param snake snake removed from the board
+     */
+    public void release(Snake snake) {
+        for (Coordinate c : snake.body)
+            release(c);
+    }
+
+    /**
+     * Add a snake segment to a cell; segments outside the board are ignored
+     *
+     * @param c coordinate of the segment
+     */
+    public void occupy(Coordinate c) {
+        if (!c.inBounds(mazeSize))
+            return;
+        int cell = c.y * width + c.x;
+        if (count[cell]++ > 0)
+            return;
+
+        // swap the last free cell into the place of this one
+        int i = position[cell];
+        int last = free[--freeCount];
+        free[i] = last;
+        position[last] = i;
+        position[cell] = -1;
+    }
+
+    /**
+     * Remove a snake segment from a cell; segments outside the board are ignored
+     *
+     * @param c coordinate of the segment
+     */
+    public void release(Coordinate c) {
+        if (!c.inBounds(mazeSize))
+            return;
+        int cell = c.y * width + c.x;
+        if (--count[cell] > 0)
+            return;
+
+        free[freeCount] = cell;
+        position[cell] = freeCount++;
+    }
+
+    /**
+     * Update the grid after a snake moved
+     *
+     * @param snake   the snake after its move
+     * @param oldHead head of the snake before its move
+     * @param oldTail tail of the snake before its move
+     * @param oldSize length of the snake before its move
+     */
+    public void update(Snake snake, Coordinate oldHead, Coordinate oldTail, int oldSize) {
+        boolean headAdded = !snake.getHead().equals(oldHead);
+        if (headAdded)
+            occupy(snake.getHead());
+        if (snake.body.size() - (headAdded ? 1 : 0) < oldSize)
+            release(oldTail);
+    }
+
+    /**
+     * Check whether no snake segment is on a cell
+     *
+     * @param c coordinate of the cell
+     * @return True - if the cell is free
+     */
+    public boolean isFree(Coordinate c) {
+        return count[c.y * width + c.x] == 0;
+    }
+
+    /**
+     * Count the snake segments on a cell; a head sharing its cell with another segment has collided
+     *
+     * @param c coordinate of the cell
+     * @return number of segments on the cell, 0 outside the board
+     */
+    public int segmentsOn(Coordinate c) {
+        return c.inBounds(mazeSize) ? count[c.y * width + c.x] : 0;
+    }
+
+    /**
+     * @return number of snake segments on every cell, indexed by {@code y * mazeSize.x + x}; not to be modified
+     */
+    byte[] counts() {
+        return count;
+    }
+
+    /**
+     * @return number of free cells
+     */
+    public int freeCount() {
+        return freeCount;
+    }
+
+    /**
+     * Select a random free cell, all free cells being equally likely
+     *
+     * @param rnd source of randomness
+     * @return coordinate of the cell
+     */
+    public Coordinate randomFreeCell(Random rnd) {
+        if (freeCount == 0)
+            throw new IllegalStateException("No free cell left on the board");
+        int cell = free[rnd.nextInt(freeCount)];
+        return Coordinate.of(cell % width, cell / width);
+    }
+}
@@ -0,0 +1,185 @@
+package snakes;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Implements one scheduled game of a tournament and its outcome.
+ * <p>
+ * A game is forfeited if one of its players was quarantined by a game that comes earlier in
+ * the schedule of the tournament, see {@link #order}, so the forfeits are the same whether the
+ * games are played one after another, in threads or in worker JVMs, and whichever game ends first
+ */
+public class Pairing {
+    // order of the first game in which each quarantined bot, by binary name, did not stop; guarded by the class
+    private static final Map<String, Long> quarantinedAt = new HashMap<>();
+
+    public final int playerNumber0, playerNumber1;
+    public final Class<? extends Bot> bot0, bot1;
+    public final long seed; // seed of the game's random apple placement
+    public long order; // position of the game in the schedule of the whole tournament
+
+    public String name0, name1;
+    public String gameResult;
+    public float timeTaken;
+    public String gameId; // id of the game played, null if it was forfeited
+    public DecisionLatency latency0, latency1; // decision latencies of the players, null if the game was forfeited
+
+    /**
+     * Construct a pairing of two players
+     *
+     * @param playerNumber0 tournament number of the first player
+     * @param bot0          class of the first player's bot
+     * @param playerNumber1 tournament number of the second player
+     * @param bot1          class of the second player's bot
+     * @param seed          seed of the game's random apple placement
+     */
+    public Pairing(int playerNumber0, Class<? extends Bot> bot0, int playerNumber1, Class<? extends Bot> bot1, long seed) {
+        this.playerNumber0 = playerNumber0;
+        this.playerNumber1 = playerNumber1;
+        this.bot0 = bot0;
+        this.bot1 = bot1;
+        this.seed = seed;
+    }
+
+    /**
+     * Store the outcome of a finished game
+     *
+     * @param game game that was played for this pairing
+     */
+    public void record(SnakeGame game) {
+        name0 = game.name0;
+        name1 = game.name1;
+        gameResult = game.gameResult;
+        timeTaken = (float) (System.currentTimeMillis() - game.startTime) / 1000;
+        gameId = game.id;
+        latency0 = game.latencies[0];
+        latency1 = game.latencies[1];
+        if (game.isOrphaned(0))
+            quarantine(bot0.getName(), order);
+        if (game.isOrphaned(1))
+            quarantine(bot1.getName(), order);
+    }
+
+    /**
+     * Check whether the game is forfeited, because a player was quarantined in an earlier game
+     * of the schedule. A game may be played before an earlier game ends and still be forfeited
+     * afterwards; the outcome must be checked again once the earlier games are over
+     *
+     * @return True - if the game is forfeited
+     */
+    public boolean isForfeit() {
+        return isQuarantinedBefore(bot0) || isQuarantinedBefore(bot1);
+    }
+
+    /**
+     * Store the outcome of a forfeited game: players quarantined in an earlier game lose it
+     */
+    public void recordForfeit() {
+        name0 = bot0.getSimpleName();
+        name1 = bot1.getSimpleName();
+        gameResult = (isQuarantinedBefore(bot0) ? 0 : 1) + " - " + (isQuarantinedBefore(bot1) ? 0 : 1);
+        timeTaken = 0;
+        gameId = null; // the game may have been played before the earlier game ended
+        latency0 = null;
+        latency1 = null;
+    }
+
+    /**
+     * @param bot class of a player
+     * @return True - if the player was quarantined in a game before this one
+     */
+    private boolean isQuarantinedBefore(Class<? extends Bot> bot) {
+        synchronized (Pairing.class) {
+            Long at = quarantinedAt.get(bot.getName());
+            return at != null && at < order;
+        }
+    }
+
+    /**
+     * Record that a bot was quarantined in a game, unless it was in an earlier game already
+     *
+     * @param botName binary name of the bot
+     * @param order   order of the game in the schedule, see {@link #order}
+     */
+    static synchronized void quarantine(String botName, long order) {
+        Long at = quarantinedAt.get(botName);
+        if (at == null || order < at)
+            quarantinedAt.put(botName, order);
+    }
+
+    /**
+     * @return order of the game in which each quarantined bot was quarantined, by binary name
+     */
+    static synchronized Map<String, Long> getQuarantines() {
+        return new HashMap<>(quarantinedAt);
+    }
+
+    /**
+     * Store the outcome of a game that could not be played, because the JVM playing it crashed:
+     * nobody earns a point
+     */
+    public void recordCrash() {
+        name0 = bot0.getSimpleName();
+        name1 = bot1.getSimpleName();
+        gameResult = "0 - 0";
+        timeTaken = 0;
+        gameId = null; // in case an outcome was partly read before the crash
+        latency0 = null;
+        latency1 = null;
+    }
+
+    /**
+     * Write the outcome of the game, to be read in another JVM
+     *
+     * @param out stream to write to
+     * @throws IOException if the stream cannot be written
+     */
+    public void writeOutcome(DataOutput out) throws IOException {
+        out.writeUTF(name0);
+        out.writeUTF(name1);
+        out.writeUTF(gameResult);
+        out.writeFloat(timeTaken);
+        out.writeBoolean(gameId != null);
+        if (gameId != null) {
+            out.writeUTF(gameId);
+            latency0.write(out);
+            latency1.write(out);
+        }
+    }
+
+    /**
+     * Store the outcome of the game written by {@link #writeOutcome(DataOutput)}
+     *
+     * @param in stream to read from
+     * @throws IOException if the stream cannot be read
+     */
+    public void readOutcome(DataInput in) throws IOException {
+        name0 = in.readUTF();
+        name1 = in.readUTF();
+        gameResult = in.readUTF();
+        timeTaken = in.readFloat();
+        if (in.readBoolean()) {
+            gameId = in.readUTF();
+            latency0 = DecisionLatency.read(in);
+            latency1 = DecisionLatency.read(in);
+        }
+    }
+
+    /**
+     * @return points earned by the first player
+     */
+    public int points0() {
+        return Integer.parseInt(gameResult.substring(0, 1));
+    }
+
+    /**
+     * @return points earned by the second player
+     */
+    public int points1() {
+        return Integer.parseInt(gameResult.substring(gameResult.length() - 1));
+    }
+}
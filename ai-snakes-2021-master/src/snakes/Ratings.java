@@ -0,0 +1,372 @@
+package snakes;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.WeakHashMap;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.zip.CRC32;
+
+/**
+ * Implements Glicko ratings of bot versions, updated after every game as its result arrives.
+ * <p>
+ * A player is a version of a bot, named {@code SimpleName@crc}, where crc is a checksum of the
+ * class files of the bot's package (see {@link #versionId(Class)}), so every build of a bot
+ * is rated on its own and builds of the same bot can play each other. A version never changes,
+ * so its rating deviation only shrinks as it plays; the rating is reported with its 95%
+ * confidence interval, rating &plusmn; 1.96 deviations.
+ * <p>
+ * Every game is one rating period. In a game of more than two snakes every snake plays every
+ * other snake, winning against snakes that earned fewer points and drawing with snakes that
+ * earned as many. The results can be stored in a history file, one game per line as
+ * {@code player,points,player,points,...}, from which the ratings are recomputed by
+ * {@link #load(File)} or by running this class
+ */
+public class Ratings {
+    public static final double INITIAL_RATING = 1500;
+    public static final double INITIAL_DEVIATION = 350;
+    private static final double Q = Math.log(10) / 400;
+    private static final double Z95 = 1.96; // deviations on each side of the 95% confidence interval
+
+    private final HashMap<String, Integer> index = new HashMap<>(); // number of every player
+    private final WeakHashMap<Class<?>, String> versions = new WeakHashMap<>(); // version of every bot class, which may be unloaded
+    private String[] ids = new String[16];
+    private double[] rating = new double[16];
+    private double[] deviation = new double[16];
+    private int[] games = new int[16];
+    private int[] points = new int[16];
+    private int players = 0;
+    private long results = 0; // games rated
+
+    // state of the current game, kept between games to avoid allocation
+    private int[] gamePlayers = new int[2];
+    private double[] sums = new double[2], variances = new double[2];
+
+    private Writer history; // the history file the results are appended to, or null
+
+    /**
+     * Recompute the ratings from a history file and append all further results to it
+     *
+     * @param file history file, created if it does not exist
+     * @return the ratings
+     * @throws IOException if the file cannot be read or opened
+     */
+    public static Ratings open(File file) throws IOException {
+        Ratings ratings = new Ratings();
+        if (file.exists())
+            ratings.load(file);
+        ratings.history = new BufferedWriter(new FileWriter(file, true));
+        return ratings;
+    }
+
+    /**
+     * Rate all games of a history file, in order
+     *
+     * @param file history file
+     * @throws IOException if the file cannot be read or a line is malformed
+     */
+    public void load(File file) throws IOException {
+        try (BufferedReader in = new BufferedReader(new FileReader(file), 1 << 16)) {
+            int[] gamePoints = new int[2];
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.isEmpty())
+                    continue;
+                int n = 0;
+                int start = 0;
+                while (start < line.length()) {
+                    int comma = line.indexOf(',', start);
+                    int end = line.indexOf(',', comma + 1);
+                    if (comma < 0)
+                        throw new IOException("Malformed result in " + file + ": " + line);
+                    if (end < 0)
+                        end = line.length();
+                    if (n == gamePoints.length) {
+                        gamePoints = Arrays.copyOf(gamePoints, 2 * n);
+                        gamePlayers = Arrays.copyOf(gamePlayers, 2 * n);
+                    }
+                    gamePlayers[n] = player(line.substring(start, comma));
+                    gamePoints[n] = Integer.parseInt(line.substring(comma + 1, end));
+                    n++;
+                    start = end + 1;
+                }
+                rate(n, gamePoints);
+            }
+        }
+    }
+
+    /**
+     * Rate a game and append it to the history file, if there is one
+     *
+     * @param ids    version of the bot of every snake, see {@link #versionId(Class)}
+     * @param points points earned by every snake
+     * @throws IOException if the result cannot be appended to the history file
+     */
+    public void record(String[] ids, int[] points) throws IOException {
+        int n = ids.length;
+        if (n > gamePlayers.length)
+            gamePlayers = new int[n];
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            gamePlayers[i] = player(ids[i]);
+            if (i > 0)
+                line.append(',');
+            line.append(ids[i]).append(',').append(points[i]);
+        }
+        rate(n, points);
+        if (history != null) {
+            history.write(line.append('\n').toString());
+            history.flush();
+        }
+    }
+
+    /**
+     * Updates the ratings of the players of a game, all from their ratings before the game
+     *
+     * @param n      number of snakes in the game, whose players are in gamePlayers
+     * @param points points earned by every snake
+     */
+    private void rate(int n, int[] points) {
+        if (n > sums.length) {
+            sums = new double[n];
+            variances = new double[n];
+        }
+        for (int i = 0; i < n; i++) {
+            sums[i] = 0;
+            variances[i] = 0;
+        }
+        for (int i = 0; i < n; i++) {
+            int a = gamePlayers[i];
+            // several snakes of the same version add up as one player of the game, its first snake
+            int first = 0;
+            while (gamePlayers[first] != a)
+                first++;
+            for (int j = 0; j < n; j++) {
+                int b = gamePlayers[j];
+                if (a == b)
+                    continue; // playing the same version tells nothing
+                double g = g(deviation[b]);
+                double expected = 1 / (1 + Math.exp(-g * Q * (rating[a] - rating[b])));
+                double score = points[i] > points[j] ? 1 : points[i] < points[j] ? 0 : 0.5;
+                sums[first] += g * (score - expected);
+                variances[first] += Q * Q * g * g * expected * (1 - expected);
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            int a = gamePlayers[i];
+            games[a]++;
+            this.points[a] += points[i];
+            int first = 0;
+            while (gamePlayers[first] != a)
+                first++;
+            if (first != i)
+                continue;
+            double precision = 1 / (deviation[a] * deviation[a]) + variances[i];
+            rating[a] += Q / precision * sums[i];
+            deviation[a] = Math.sqrt(1 / precision);
+        }
+        results++;
+    }
+
+    /**
+     * @param deviation rating deviation of an opponent
+     * @return weight of a result against the opponent, the less the more uncertain its rating
+     */
+    private static double g(double deviation) {
+        return 1 / Math.sqrt(1 + 3 * Q * Q * deviation * deviation / (Math.PI * Math.PI));
+    }
+
+    /**
+     * @param id version of a bot
+     * @return number of the player, added with the initial rating if it is new
+     */
+    private int player(String id) {
+        Integer number = index.get(id);
+        if (number != null)
+            return number;
+        if (players == ids.length) {
+            int size = 2 * players;
+            ids = Arrays.copyOf(ids, size);
+            rating = Arrays.copyOf(rating, size);
+            deviation = Arrays.copyOf(deviation, size);
+            games = Arrays.copyOf(games, size);
+            points = Arrays.copyOf(points, size);
+        }
+        ids[players] = id;
+        rating[players] = INITIAL_RATING;
+        deviation[players] = INITIAL_DEVIATION;
+        index.put(id, players);
+        return players++;
+    }
+
+    /**
+     * @param id version of a bot
+     * @return its rating, or the initial rating if it has not played
+     */
+    public double rating(String id) {
+        Integer number = index.get(id);
+        return number == null ? INITIAL_RATING : rating[number];
+    }
+
+    /**
+     * @param id version of a bot
+     * @return the deviation of its rating, or the initial deviation if it has not played
+     */
+    public double deviation(String id) {
+        Integer number = index.get(id);
+        return number == null ? INITIAL_DEVIATION : deviation[number];
+    }
+
+    /**
+     * @return number of games rated
+     */
+    public long results() {
+        return results;
+    }
+
+    /**
+     * @return all players from the highest rating to the lowest, with the 95% confidence interval of their rating
+     */
+    public String table() {
+        ArrayList<Integer> order = new ArrayList<>();
+        for (int i = 0; i < players; i++)
+            order.add(i);
+        Collections.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return Double.compare(rating[b], rating[a]);
+            }
+        });
+
+        int width = 7;
+        for (int i = 0; i < players; i++)
+            width = Math.max(width, ids[i].length());
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT, "%4s  %-" + width + "s %8s %19s %8s %8s%n", "rank", "version", "rating", "95% interval", "games", "points"));
+        int rank = 1;
+        for (int i : order)
+            sb.append(String.format(Locale.ROOT, "%4d  %-" + width + "s %8.1f   [%6.1f, %6.1f] %8d %8d%n", rank++, ids[i],
+                    rating[i], rating[i] - Z95 * deviation[i], rating[i] + Z95 * deviation[i], games[i], points[i]));
+        return sb.toString();
+    }
+
+    /**
+     * Stops appending to the history file
+     *
+     * @throws IOException if the history file cannot be closed
+     */
+    public void close() throws IOException {
+        if (history != null)
+            history.close();
+        history = null;
+    }
+
+    /**
+     * Names a build of a bot by a checksum of the class files of its package, which changes
+     * whenever the bot or one of its helper classes is recompiled with changes
+     *
+     * @param bot class of the bot
+     * @return {@code SimpleName@crc}, or the simple name alone if the class files cannot be read
+     */
+    public String versionId(Class<? extends Bot> bot) {
+        String id = versions.get(bot);
+        if (id == null) {
+            id = bot.getSimpleName();
+            try {
+                id += String.format("@%08x", packageChecksum(bot));
+            } catch (Exception e) {
+                System.out.println("Cannot read the class files of " + bot.getName() + ", its versions are rated as one");
+            }
+            versions.put(bot, id);
+        }
+        return id;
+    }
+
+    /**
+     * @param bot class of a bot
+     * @return CRC-32 of the names and contents of the class files of the bot's package, in order of their names
+     * @throws Exception if the class files cannot be read
+     */
+    private static long packageChecksum(Class<?> bot) throws Exception {
+        String name = bot.getName();
+        String path = name.substring(0, name.lastIndexOf('.') + 1).replace('.', '/'); // "" for the default package
+        File source = new File(bot.getProtectionDomain().getCodeSource().getLocation().toURI());
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[8192];
+        if (source.isDirectory()) {
+            File[] files = new File(source, path).listFiles();
+            if (files == null)
+                throw new IOException("No class files in " + source);
+            Arrays.sort(files);
+            for (File file : files) {
+                if (!file.isFile() || !file.getName().endsWith(".class"))
+                    continue;
+                crc.update(file.getName().getBytes("UTF-8"));
+                try (InputStream in = new FileInputStream(file)) {
+                    update(crc, in, buffer);
+                }
+            }
+        } else {
+            try (JarFile jar = new JarFile(source)) {
+                ArrayList<String> entries = new ArrayList<>();
+                for (Enumeration<JarEntry> e = jar.entries(); e.hasMoreElements(); ) {
+                    String entry = e.nextElement().getName();
+                    if (entry.startsWith(path) && entry.endsWith(".class") && entry.indexOf('/', path.length()) < 0)
+                        entries.add(entry);
+                }
+                Collections.sort(entries);
+                for (String entry : entries) {
+                    crc.update(entry.substring(path.length()).getBytes("UTF-8"));
+                    try (InputStream in = jar.getInputStream(jar.getEntry(entry))) {
+                        update(crc, in, buffer);
+                    }
+                }
+            }
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Add the rest of a stream to a checksum
+     */
+    private static void update(CRC32 crc, InputStream in, byte[] buffer) throws IOException {
+        int read;
+        while ((read = in.read(buffer)) > 0)
+            crc.update(buffer, 0, read);
+    }
+
+    /**
+     * Recompute the ratings from history files and print them
+     *
+     * @param args history files, rated one after another
+     * @throws IOException if a file cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("You must provide a history file of results, such as logs/ratings.csv.");
+            System.exit(1);
+        }
+        Ratings ratings = new Ratings();
+        long start = System.nanoTime();
+        for (String arg : args)
+            ratings.load(new File(arg));
+        float time_taken = (float) (System.nanoTime() - start) / 1e9f;
+
+        System.out.print(ratings.table());
+        System.out.println("Rated " + ratings.results() + " games in " + time_taken + " s");
+    }
+}
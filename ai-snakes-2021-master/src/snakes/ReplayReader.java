@@ -0,0 +1,195 @@
+package snakes;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * This class is responsible for reading a game recorded by {@link ReplayWriter}.
+ * The file is memory-mapped, and the seek index is used to jump to any step
+ * by decoding at most {@code INDEX_INTERVAL - 1} records. A reader must not be
+ * shared between threads
+ */
+public class ReplayReader {
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final MappedByteBuffer buffer;
+    public final int indexInterval;
+    public final long seed;
+    public final Coordinate mazeSize;
+    public final int snakeSize;
+    public final int snakes; // number of snakes
+    public final Coordinate[] heads;
+    public final Direction[] tailDirs;
+    public final String[] names;
+    public final String gameResult;
+    public final int steps;
+    private final int recordSize, maskSize;
+    private final int appleBit, eliminationBit; // positions of the flags in a record
+    private final long[] indexOffsets;
+    private final int[] indexApples;
+
+    // the step decoded last, to read consecutive steps without seeking
+    private int cursorStep = -1;
+    private int cursorOffset; // offset of the cursor step's record
+    private int cursorApple;
+
+    /**
+     * Open a replay
+     *
+     * @param file replay file
+     * @throws IOException if the file cannot be read or is no replay
+     */
+    public ReplayReader(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (buffer.limit() < ReplayWriter.FOOTER_SIZE || buffer.getInt(0) != ReplayWriter.MAGIC
+                || buffer.getInt(buffer.limit() - 4) != ReplayWriter.MAGIC)
+            throw new IOException(file + " is not a replay");
+        buffer.position(4);
+        short version = buffer.getShort();
+        if (version != ReplayWriter.VERSION)
+            throw new IOException(file + " has unsupported replay version " + version);
+
+        indexInterval = buffer.getInt();
+        seed = buffer.getLong();
+        mazeSize = new Coordinate(buffer.getInt(), buffer.getInt());
+        snakeSize = buffer.getInt();
+        snakes = buffer.getInt();
+        heads = new Coordinate[snakes];
+        tailDirs = new Direction[snakes];
+        names = new String[snakes];
+        for (int i = 0; i < snakes; i++) {
+            heads[i] = new Coordinate(buffer.getInt(), buffer.getInt());
+            tailDirs[i] = DIRECTIONS[buffer.get()];
+            names[i] = readUTF();
+        }
+        recordSize = ReplayWriter.recordSize(snakes);
+        maskSize = ReplayWriter.maskSize(snakes);
+        appleBit = 2 * snakes;
+        eliminationBit = 2 * snakes + 1;
+        int firstApple = buffer.getInt();
+        int firstRecord = buffer.position();
+
+        int footer = buffer.limit() - ReplayWriter.FOOTER_SIZE;
+        long resultOffset = buffer.getLong(footer);
+        steps = buffer.getInt(footer + 8);
+
+        buffer.position((int) resultOffset);
+        gameResult = readUTF();
+        int k = buffer.getInt();
+        indexOffsets = new long[k];
+        indexApples = new int[k];
+        for (int i = 0; i < k; i++) {
+            indexOffsets[i] = buffer.getLong();
+            indexApples[i] = buffer.getInt();
+        }
+        if (k == 0) {
+            // a game without steps still has its first apple
+            cursorOffset = firstRecord;
+            cursorApple = firstApple;
+        }
+    }
+
+    /**
+     * Read a string written by {@link java.io.DataOutputStream#writeUTF(String)} at the current position
+     */
+    private String readUTF() throws IOException {
+        int length = buffer.getShort(buffer.position()) & 0xFFFF;
+        byte[] bytes = new byte[length + 2];
+        buffer.get(bytes);
+        return DataInputStream.readUTF(new DataInputStream(new ByteArrayInputStream(bytes)));
+    }
+
+    /**
+     * Position the cursor on a step, seeking from the closest index entry before it
+     *
+     * @param step number of the step, starting from 0
+     */
+    private void seek(int step) {
+        if (step < 0 || step >= steps)
+            throw new IndexOutOfBoundsException("Step " + step + " of " + steps);
+        if (step == cursorStep)
+            return;
+
+        if (cursorStep < 0 || step < cursorStep || step / indexInterval != cursorStep / indexInterval) {
+            int k = step / indexInterval;
+            cursorStep = k * indexInterval;
+            cursorOffset = (int) indexOffsets[k];
+            cursorApple = indexApples[k];
+        }
+        while (cursorStep < step) {
+            // skip the record of the cursor's step
+            int next = appleOffset();
+            if (bits(appleBit, 1) != 0) {
+                cursorApple = buffer.getInt(next);
+                next += 4;
+            }
+            cursorOffset = next;
+            cursorStep++;
+        }
+    }
+
+    /**
+     * Read bits of the cursor step's record
+     *
+     * @param bit   position of the lowest bit
+     * @param count number of bits, not crossing a byte
+     * @return value of the bits
+     */
+    private int bits(int bit, int count) {
+        return buffer.get(cursorOffset + (bit >> 3)) >> (bit & 7) & ((1 << count) - 1);
+    }
+
+    /**
+     * @return offset of the cursor step's apple cell, which is only there if the apple moved
+     */
+    private int appleOffset() {
+        return cursorOffset + recordSize + (bits(eliminationBit, 1) != 0 ? maskSize : 0);
+    }
+
+    /**
+     * @param step  number of the step, starting from 0
+     * @param snake number of the snake
+     * @return move of the snake in the step, meaningless if the snake was eliminated
+     */
+    public Direction getMove(int step, int snake) {
+        seek(step);
+        return DIRECTIONS[bits(2 * snake, 2)];
+    }
+
+    /**
+     * @param step  number of the step, starting from 0
+     * @param snake number of the snake
+     * @return True - if the snake was eliminated right before the step
+     */
+    public boolean isEliminated(int step, int snake) {
+        seek(step);
+        if (bits(eliminationBit, 1) == 0)
+            return false;
+        return (buffer.get(cursorOffset + recordSize + (snake >> 3)) >> (snake & 7) & 1) != 0;
+    }
+
+    /**
+     * @param step number of the step, starting from 0, or the number of steps for the final apple
+     * @return coordinate of the apple at the start of the step
+     */
+    public Coordinate getApple(int step) {
+        if (step == steps && steps > 0) {
+            seek(step - 1);
+            int apple = bits(appleBit, 1) != 0 ? buffer.getInt(appleOffset()) : cursorApple;
+            return Coordinate.of(apple % mazeSize.x, apple / mazeSize.x);
+        }
+        if (steps > 0)
+            seek(step);
+        else if (step != 0)
+            throw new IndexOutOfBoundsException("Step " + step + " of " + steps);
+        return Coordinate.of(cursorApple % mazeSize.x, cursorApple / mazeSize.x);
+    }
+}
@@ -0,0 +1,225 @@
+package snakes;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * This class is responsible for recording a game in the binary replay format.
+ * <p>
+ * All numbers are big-endian. A replay consists of
+ * <ul>
+ * <li>a header: magic, version, index interval, seed of the game, maze size, initial snake size,
+ * number of snakes, then the head, tail direction and bot's name of every snake, and the first apple;</li>
+ * <li>one record per step: the moves of all snakes in 2 bits each ({@link Direction#ordinal()}),
+ * followed by a flag telling whether the apple moved to another cell and a flag telling whether
+ * snakes were eliminated before the step, in {@code (2 * snakes + 2 + 7) / 8} bytes with the
+ * lowest bit first; then, if snakes were eliminated, a bit mask of them in {@code (snakes + 7) / 8}
+ * bytes, and, if the apple moved, the new apple's cell;</li>
+ * <li>the result and the seek index: for every {@code INDEX_INTERVAL}-th step, the
+ * offset of its record and the apple's cell at its start;</li>
+ * <li>a footer of fixed size: offset of the result, number of steps and magic.</li>
+ * </ul>
+ * Cells are encoded as {@code y * mazeSize.x + x}. The moves of eliminated snakes are meaningless.
+ */
+public class ReplayWriter {
+    public static final int MAGIC = 0x534E4B52; // "SNKR"
+    public static final short VERSION = 3;
+    public static final int INDEX_INTERVAL = 64;
+    public static final int FOOTER_SIZE = 16;
+
+    static final File REPLAY_DIRECTORY = new File("logs", "replays");
+    private static volatile boolean enabled = false;
+
+    private final DataOutputStream out;
+    private final int width;
+    private final int snakes;
+    private final byte[] record;     // buffer for the moves and flags of a step
+    private final byte[] eliminated; // snakes eliminated since the last step
+    private boolean anyEliminated = false;
+    private long offset;
+    private int steps = 0;
+    private int apple;
+    private long[] indexOffsets = new long[16];
+    private int[] indexApples = new int[16];
+
+    /**
+     * @param snakes number of snakes
+     * @return bytes holding the moves and flags of a step
+     */
+    static int recordSize(int snakes) {
+        return (2 * snakes + 2 + 7) / 8;
+    }
+
+    /**
+     * @param snakes number of snakes
+     * @return bytes holding the mask of eliminated snakes
+     */
+    static int maskSize(int snakes) {
+        return (snakes + 7) / 8;
+    }
+
+    /**
+     * Start recording a game
+     *
+     * @param file      file to record to
+     * @param mazeSize  size of the board
+     * @param heads     initial coordinate of every snake's head
+     * @param tailDirs  initial direction of every snake's tail
+     * @param size      initial length of snakes
+     * @param names     names of the bots
+     * @param seed      seed of the random apple placement
+     * @param apple     coordinate of the first apple
+     * @throws IOException if the file cannot be written
+     */
+    public ReplayWriter(File file, Coordinate mazeSize, Coordinate[] heads, Direction[] tailDirs, int size,
+                        String[] names, long seed, Coordinate apple) throws IOException {
+        this.width = mazeSize.x;
+        this.snakes = heads.length;
+        this.record = new byte[recordSize(snakes)];
+        this.eliminated = new byte[maskSize(snakes)];
+        this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 14));
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeInt(INDEX_INTERVAL);
+        out.writeLong(seed);
+        out.writeInt(mazeSize.x);
+        out.writeInt(mazeSize.y);
+        out.writeInt(size);
+        out.writeInt(snakes);
+        for (int i = 0; i < snakes; i++) {
+            out.writeInt(heads[i].x);
+            out.writeInt(heads[i].y);
+            out.writeByte(tailDirs[i].ordinal());
+            out.writeUTF(names[i]);
+        }
+        this.apple = cell(apple);
+        out.writeInt(this.apple);
+        offset = out.size();
+    }
+
+    /**
+     * Start recording a game to the replay directory, if recording is enabled
+     *
+     * @param name name of the game, used in the file name
+     * @return the writer, or null if recording is disabled or failed
+     */
+    public static ReplayWriter open(String name, Coordinate mazeSize, Coordinate[] heads, Direction[] tailDirs,
+                                    int size, String[] names, long seed, Coordinate apple) {
+        if (!enabled)
+            return null;
+        try {
+            if (!REPLAY_DIRECTORY.mkdirs() && !REPLAY_DIRECTORY.isDirectory()) // another game may create it at the same time
+                throw new IOException("Cannot create replay directory " + REPLAY_DIRECTORY);
+            return new ReplayWriter(new File(REPLAY_DIRECTORY, name + ".snr"), mazeSize, heads, tailDirs, size,
+                    names, seed, apple);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Enable or disable recording of the games created from now on
+     *
+     * @param enable True - if games should be recorded
+     */
+    public static void setEnabled(boolean enable) {
+        enabled = enable;
+    }
+
+    /**
+     * @param c coordinate on the board
+     * @return cell of the coordinate
+     */
+    private int cell(Coordinate c) {
+        return c.y * width + c.x;
+    }
+
+    /**
+     * Record that a snake was eliminated before the next step
+     *
+     * @param snake number of the snake
+     */
+    public void eliminate(int snake) {
+        eliminated[snake >> 3] |= 1 << (snake & 7);
+        anyEliminated = true;
+    }
+
+    /**
+     * Record one step
+     *
+     * @param moves move of every snake, null for eliminated snakes
+     * @param apple coordinate of the apple after the step
+     * @throws IOException if the file cannot be written
+     */
+    public void step(Direction[] moves, Coordinate apple) throws IOException {
+        if (steps % INDEX_INTERVAL == 0) {
+            int k = steps / INDEX_INTERVAL;
+            if (k == indexOffsets.length) {
+                indexOffsets = Arrays.copyOf(indexOffsets, 2 * k);
+                indexApples = Arrays.copyOf(indexApples, 2 * k);
+            }
+            indexOffsets[k] = offset;
+            indexApples[k] = this.apple;
+        }
+
+        int a = cell(apple);
+        boolean moved = a != this.apple;
+        Arrays.fill(record, (byte) 0);
+        for (int i = 0; i < snakes; i++)
+            if (moves[i] != null)
+                setBits(2 * i, moves[i].ordinal());
+        setBits(2 * snakes, moved ? 1 : 0);
+        setBits(2 * snakes + 1, anyEliminated ? 1 : 0);
+        out.write(record);
+        offset += record.length;
+
+        if (anyEliminated) {
+            out.write(eliminated);
+            offset += eliminated.length;
+            Arrays.fill(eliminated, (byte) 0);
+            anyEliminated = false;
+        }
+        if (moved) {
+            out.writeInt(a);
+            offset += 4;
+            this.apple = a;
+        }
+        steps++;
+    }
+
+    /**
+     * Set bits of the record of a step
+     *
+     * @param bit   position of the lowest bit
+     * @param value value of at most 2 bits, not crossing a byte
+     */
+    private void setBits(int bit, int value) {
+        record[bit >> 3] |= value << (bit & 7);
+    }
+
+    /**
+     * Record the result, write the seek index and close the file
+     *
+     * @param gameResult result of the game
+     * @throws IOException if the file cannot be written
+     */
+    public void close(String gameResult) throws IOException {
+        long resultOffset = offset;
+        out.writeUTF(gameResult);
+        int k = (steps + INDEX_INTERVAL - 1) / INDEX_INTERVAL;
+        out.writeInt(k);
+        for (int i = 0; i < k; i++) {
+            out.writeLong(indexOffsets[i]);
+            out.writeInt(indexApples[i]);
+        }
+        out.writeLong(resultOffset);
+        out.writeInt(steps);
+        out.writeInt(MAGIC);
+        out.close();
+    }
+}
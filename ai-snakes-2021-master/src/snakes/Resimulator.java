@@ -0,0 +1,87 @@
+package snakes;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * This class is responsible for replaying recorded games from their seed and moves,
+ * without calling the bots. The engine must then place the apples exactly as
+ * recorded and reach the recorded result, which makes a set of replays a golden
+ * corpus for changes to the engine
+ */
+public class Resimulator {
+
+    /**
+     * Resimulate a recorded game and compare it with the recording
+     *
+     * @param replay recorded game
+     * @return null if the resimulated game matches the recording, otherwise a description of the first difference
+     */
+    public static String verify(ReplayReader replay) {
+        SnakeGame game = new SnakeGame(replay.mazeSize, replay.heads, replay.tailDirs, replay.snakeSize, null,
+                replay.names, replay.seed);
+        Direction[] moves = new Direction[replay.snakes];
+
+        boolean running = true;
+        for (int step = 0; step < replay.steps; step++) {
+            if (!running)
+                return "game ended after step " + (step - 1) + " of " + replay.steps;
+            if (!game.appleCoordinate.equals(replay.getApple(step)))
+                return "apple at " + game.appleCoordinate + " instead of " + replay.getApple(step) + " in step " + step;
+            for (int i = 0; i < replay.snakes; i++) {
+                if (replay.isEliminated(step, i))
+                    game.eliminate(i); // ran out of time or threw an exception
+                moves[i] = replay.getMove(step, i);
+            }
+            running = game.applyMoves(moves);
+        }
+        if (!game.appleCoordinate.equals(replay.getApple(replay.steps)))
+            return "apple at " + game.appleCoordinate + " instead of " + replay.getApple(replay.steps) + " after the last step";
+
+        // a game that is still running was ended by a timeout or its limit, which the moves do not tell
+        if (!running && !game.gameResult.equals(replay.gameResult))
+            return "result " + game.gameResult + " instead of " + replay.gameResult;
+        return null;
+    }
+
+    /**
+     * Resimulate replays and report those that do not match
+     *
+     * @param args replay files, or directories of replay files
+     * @throws IOException if a replay cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        ArrayList<File> files = new ArrayList<>();
+        for (String arg : args) {
+            File file = new File(arg);
+            File[] children = file.listFiles();
+            if (children == null) {
+                files.add(file);
+            } else {
+                Arrays.sort(children);
+                files.addAll(Arrays.asList(children));
+            }
+        }
+
+        int mismatches = 0;
+        long steps = 0;
+        long start = System.nanoTime();
+        for (File file : files) {
+            ReplayReader replay = new ReplayReader(file);
+            steps += replay.steps;
+            String difference = verify(replay);
+            if (difference != null) {
+                mismatches++;
+                System.out.println(file + ": " + difference);
+            }
+        }
+        float time_taken = (float) (System.nanoTime() - start) / 1e9f;
+
+        System.out.println("Resimulated " + files.size() + " games (" + steps + " steps) in " + time_taken + " s, "
+                + mismatches + " did not match");
+        if (mismatches > 0)
+            System.exit(1);
+    }
+}
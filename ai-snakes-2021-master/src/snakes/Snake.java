@@ -1,12 +1,32 @@
 package snakes;
 
+import java.lang.reflect.Array;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Deque;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
 
 /**
  * This class implements snake body (the brain is your bot) that
  * determines the place of head and body, length of body, etc on the game board
+ * <p>
+ * The body is stored as cell indices ({@code y * mazeSize.x + x}) in a ring buffer,
+ * and the cells it covers in a bit set over the board, so moving and checking collisions
+ * neither allocate nor hash. The ring buffer grows with the snake, so a snake takes
+ * memory in proportion to its length plus one bit per cell. {@link #body} is a view of
+ * the ring buffer and {@link #elements} of the bit set; like the LinkedList and the HashSet
+ * they used to be, they can be edited, and editing one does not change the other
+ * <p>
+ * For look-ahead, {@link #move(Direction, boolean)} applies a move that {@link #undo()}
+ * reverts exactly, without allocating. Bots must never move the snakes they are given,
+ * which belong to the game: they take one {@link #snapshot()} of each per decision, and
+ * try their moves on it, undoing each before trying the next
  */
 public class Snake implements Cloneable {
     public final HashSet<Coordinate> elements; // To quickly check intersections
@@ -15,17 +35,29 @@ public class Snake implements Cloneable {
 
     public final Coordinate mazeSize;
 
+    private final int width;
+    private int[] cells;            // ring buffer of the body's cells, cells[head] is the head; its length is a power of 2
+    private final long[] occupied;  // bit set of the cells the body covers
+    private int head = 0;             // index of the head in the ring buffer
+    private int length = 0;
+
+    private int[] undoLog;          // moves that undo() reverts, see step()
+    private int undoCount = 0;
+
     /**
-     * Construct a snake with the body that defined in elements HashSet
+     * Construct a snake without body
      *
      * @param mazeSize size of the board
-     * @param elements Coordinates that define body elements of the snake
-     * @param body     Coordinates that define body elements of the snake
+     * @param cells    ring buffer to store the body in
+     * @param occupied occupancy bit set of the body
      */
-    private Snake(Coordinate mazeSize, HashSet<Coordinate> elements, Deque<Coordinate> body) {
+    private Snake(Coordinate mazeSize, int[] cells, long[] occupied) {
         this.mazeSize = mazeSize;
-        this.elements = elements;
-        this.body = body;
+        this.width = mazeSize.x;
+        this.cells = cells;
+        this.occupied = occupied;
+        this.elements = new Elements();
+        this.body = new Body();
     }
 
 
@@ -36,13 +68,28 @@ public class Snake implements Cloneable {
      * @param mazeSize    size of the board
      */
     public Snake(Coordinate initialHead, Coordinate mazeSize) {
-        this(mazeSize, new HashSet<Coordinate>(), new LinkedList<Coordinate>());
+        this(mazeSize, new int[16], new long[(mazeSize.x * mazeSize.y + 63) >> 6]);
+        Coordinate.reserve(mazeSize);
 
-        body.addFirst(initialHead);
-        elements.add(initialHead);
+        addLast(initialHead);
     }
 
 
+    /**
+     * Construct snake from the cells of its segments, numbered {@code y * mazeSize.x + x}
+     *
+     * @param segments cells of the segments, from the head to the tail
+     * @param length   number of segments
+     * @param mazeSize size of the board
+     */
+    Snake(int[] segments, int length, Coordinate mazeSize) {
+        this(mazeSize, new int[16], new long[(mazeSize.x * mazeSize.y + 63) >> 6]);
+        Coordinate.reserve(mazeSize);
+
+        for (int i = 0; i < length; i++)
+            addLast(Coordinate.of(segments[i] % mazeSize.x, segments[i] / mazeSize.x));
+    }
+
     /**
      * Construct snake with predefined length
      *
@@ -56,19 +103,97 @@ public class Snake implements Cloneable {
 
         Coordinate p = head.moveTo(tailDirection);
         for (int i = 0; i < size - 1; i++) {
-            body.addLast(p);
-            elements.add(p);
+            addLast(p);
             p = p.moveTo(tailDirection);
         }
     }
 
+    /**
+     * Append a segment to the tail while the snake is built
+     *
+     * @param c coordinate of the segment
+     */
+    private void addLast(Coordinate c) {
+        int cell = cellOf(c);
+        if (isOccupied(cell))
+            throw new IllegalArgumentException("Snake crosses itself at " + c);
+        if (length == cells.length)
+            grow();
+        cells[(head + length) & (cells.length - 1)] = cell;
+        setOccupied(cell);
+        length++;
+    }
+
+    /**
+     * Double the capacity of the ring buffer, moving the head to its start
+     */
+    private void grow() {
+        int[] larger = new int[2 * cells.length];
+        for (int i = 0; i < length; i++)
+            larger[i] = cellAt(i);
+        cells = larger;
+        head = 0;
+    }
+
+    /**
+     * @param cell cell index on the board
+     * @return True - if the body covers the cell
+     */
+    private boolean isOccupied(int cell) {
+        return (occupied[cell >> 6] & 1L << cell) != 0;
+    }
+
+    /**
+     * @param cell cell index on the board, now covered by the body
+     */
+    private void setOccupied(int cell) {
+        occupied[cell >> 6] |= 1L << cell;
+    }
+
+    /**
+     * @param cell cell index on the board, no longer covered by the body
+     */
+    private void clearOccupied(int cell) {
+        occupied[cell >> 6] &= ~(1L << cell);
+    }
+
+    /**
+     * @param cell cell index on the board
+     * @return coordinate of the cell
+     */
+    private Coordinate coordinate(int cell) {
+        return Coordinate.of(cell % width, cell / width);
+    }
+
+    /**
+     * @param i position in the body, 0 being the head
+     * @return cell of the segment at that position
+     */
+    int cellAt(int i) {
+        return cells[(head + i) & (cells.length - 1)];
+    }
+
+    /**
+     * @return cell of the head
+     */
+    int headCell() {
+        return cells[head];
+    }
+
+    /**
+     * @return cell of the tail
+     */
+    int tailCell() {
+        return cellAt(length - 1);
+    }
+
     /**
      * Get head position
      *
      * @return Coordinates with place of snake's head
      */
     public Coordinate getHead() {
-        return body.getFirst();
+        return coordinate(cells[head]);
     }
 
 
@@ -80,22 +205,84 @@ public class Snake implements Cloneable {
      * @return False - if collides with itself or maze bounds
      */
     public boolean moveTo(Direction d, boolean grow) {
-        Coordinate newHead = getHead().moveTo(d);
+        return (step(d, grow) & 1) != 0;
+    }
+
+    /**
+     * Move snake in direction, like {@link #moveTo(Direction, boolean)}, so that {@link #undo()} can revert the move
+     *
+     * @param d    direction where should snake crawl
+     * @param grow True - if snake eat an apple
+     * @return False - if collides with itself or maze bounds
+     */
+    public boolean move(Direction d, boolean grow) {
+        int entry = step(d, grow);
+        if (undoLog == null)
+            undoLog = new int[16];
+        else if (undoCount == undoLog.length)
+            undoLog = Arrays.copyOf(undoLog, 2 * undoCount);
+        undoLog[undoCount++] = entry;
+        return (entry & 1) != 0;
+    }
+
+    /**
+     * Revert the last move made by {@link #move(Direction, boolean)}, restoring the head
+     * and the tail it grew or popped
+     *
+     * @throws IllegalStateException if there is no move to undo
+     */
+    public void undo() {
+        if (undoCount == 0)
+            throw new IllegalStateException("No move to undo");
+        int entry = undoLog[--undoCount];
+        if ((entry & 1) != 0) {
+            clearOccupied(cells[head]);
+            head = (head + 1) & (cells.length - 1);
+            length--;
+        }
+        int tail = (entry >>> 1) - 1;
+        if (tail >= 0) {
+            cells[(head + length) & (cells.length - 1)] = tail;
+            setOccupied(tail);
+            length++;
+        }
+    }
 
-        if (!newHead.inBounds(mazeSize))
-            return false; // Left maze
+    /**
+     * Move snake in direction
+     *
+     * @param d    direction where should snake crawl
+     * @param grow True - if snake eat an apple
+     * @return the change for undo(): {@code (tail + 1) << 1 | headAdded}, where tail is the
+     * cell popped from the tail or -1, and headAdded is 1 if the move succeeded
+     */
+    private int step(Direction d, boolean grow) {
+        int headCell = cells[head];
+        int x = headCell % width + d.dx;
+        int y = headCell / width + d.dy;
 
+        if (x < 0 || y < 0 || x >= mazeSize.x || y >= mazeSize.y)
+            return 0; // Left maze
+
+        int tail = -1;
         if (!grow) {
-            elements.remove(body.removeLast());
+            tail = cellAt(length - 1);
+            clearOccupied(tail);
+            length--;
         }
 
-        if (elements.contains(newHead))
-            return false; // Collided with itself
+        int newHead = y * width + x;
+        if (isOccupied(newHead))
+            return (tail + 1) << 1; // Collided with itself
 
-        body.addFirst(newHead);
-        elements.add(newHead);
+        if (length == cells.length)
+            grow(); // only while the snake gets longer than ever before
+        head = (head - 1) & (cells.length - 1);
+        cells[head] = newHead;
+        setOccupied(newHead);
+        length++;
 
-        return true;
+        return (tail + 1) << 1 | 1;
     }
 
     /**
@@ -105,18 +292,570 @@ public class Snake implements Cloneable {
      * @return True - if collides with another snake
      */
     public boolean headCollidesWith(Snake other) {
-        return other.elements.contains(getHead());
+        return length > 0 && other.isOccupied(cells[head]);
     }
 
     /**
-     * Clone snake
+     * Check whether the body covers a cell
+     *
+     * @param x column of the cell
+     * @param y row of the cell
+     * @return True - if a segment of the snake is on the cell
+     */
+    public boolean occupies(int x, int y) {
+        return x >= 0 && y >= 0 && x < mazeSize.x && y < mazeSize.y && isOccupied(y * width + x);
+    }
+
+    /**
+     * Take a snapshot of the snake: a copy of its arrays, which takes time in proportion to
+     * its length plus the size of the board, and never changes the snake itself. The undo
+     * log of the snapshot is empty. To look ahead, move and undo on one snapshot rather than
+     * taking a snapshot per move
      *
      * @return copy of current snake
      */
+    public Snake snapshot() {
+        Snake copy = new Snake(mazeSize, cells.clone(), occupied.clone());
+        copy.head = head;
+        copy.length = length;
+        return copy;
+    }
+
+    /**
+     * Clone snake
+     *
+     * @return copy of current snake, see {@link #snapshot()}
+     */
     @Override
     public Snake clone() {
-        HashSet<Coordinate> newElements = new HashSet<>(elements);
-        LinkedList<Coordinate> newBody = new LinkedList<>(body);
-        return new Snake(mazeSize, newElements, newBody);
+        return snapshot();
+    }
+
+
+    /**
+     * @param c coordinate of a cell on the board
+     * @return cell index of the coordinate
+     * @throws IllegalArgumentException if the coordinate is outside the board
+     */
+    private int cellOf(Coordinate c) {
+        if (!c.inBounds(mazeSize))
+            throw new IllegalArgumentException("Snake segment " + c + " is outside the board");
+        return c.y * width + c.x;
+    }
+
+    /**
+     * Insert a segment into the body, see {@link #body}
+     *
+     * @param i    position in the body, 0 being the head
+     * @param cell cell of the segment
+     */
+    private void insert(int i, int cell) {
+        if (length == cells.length)
+            grow();
+        int mask = cells.length - 1;
+        if (i == 0) {
+            head = (head - 1) & mask;
+        } else {
+            for (int j = length; j > i; j--)
+                cells[(head + j) & mask] = cells[(head + j - 1) & mask];
+        }
+        cells[(head + i) & mask] = cell;
+        length++;
+    }
+
+    /**
+     * Remove a segment from the body, see {@link #body}
+     *
+     * @param i position in the body, 0 being the head
+     * @return cell of the removed segment
+     */
+    private int removeAt(int i) {
+        int cell = cellAt(i);
+        if (i == 0) {
+            head = (head + 1) & (cells.length - 1);
+        } else if (i < length - 1) {
+            int mask = cells.length - 1;
+            for (int j = i; j < length - 1; j++)
+                cells[(head + j) & mask] = cells[(head + j + 1) & mask];
+        }
+        length--;
+        return cell;
+    }
+
+    /**
+     * @param from cell index to start from
+     * @return the first cell from there on that the elements cover, -1 if there is none
+     */
+    private int nextOccupied(int from) {
+        int w = from >> 6;
+        if (w >= occupied.length)
+            return -1;
+        long bits = occupied[w] & -1L << from;
+        while (bits == 0) {
+            if (++w == occupied.length)
+                return -1;
+            bits = occupied[w];
+        }
+        return w << 6 | Long.numberOfTrailingZeros(bits);
+    }
+
+    /**
+     * @param c     a view of the snake
+     * @param array array to store the coordinates in, if it is large enough
+     * @return the coordinates of the view, in its order
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T[] toArray(Collection<Coordinate> c, T[] array) {
+        int size = c.size();
+        T[] a = array.length >= size ? array : (T[]) Array.newInstance(array.getClass().getComponentType(), size);
+        int i = 0;
+        for (Coordinate e : c)
+            a[i++] = (T) e;
+        if (a.length > size)
+            a[size] = null;
+        return a;
+    }
+
+    /**
+     * Set view of the cells in the occupancy bit set, in the order of the cells on the board.
+     * It can be edited like the HashSet it once was, without changing the body
+     */
+    private class Elements extends HashSet<Coordinate> {
+        @Override
+        public int size() {
+            int size = 0;
+            for (long bits : occupied)
+                size += Long.bitCount(bits);
+            return size;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return nextOccupied(0) < 0;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof Coordinate))
+                return false;
+            Coordinate c = (Coordinate) o;
+            return occupies(c.x, c.y);
+        }
+
+        @Override
+        public boolean add(Coordinate c) {
+            int cell = cellOf(c);
+            if (isOccupied(cell))
+                return false;
+            setOccupied(cell);
+            return true;
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            if (!contains(o))
+                return false;
+            Coordinate c = (Coordinate) o;
+            clearOccupied(c.y * width + c.x);
+            return true;
+        }
+
+        @Override
+        public void clear() {
+            Arrays.fill(occupied, 0L);
+        }
+
+        @Override
+        public Iterator<Coordinate> iterator() {
+            return new Iterator<Coordinate>() {
+                private int next = nextOccupied(0);
+                private int last = -1;
+
+                @Override
+                public boolean hasNext() {
+                    return next >= 0;
+                }
+
+                @Override
+                public Coordinate next() {
+                    if (next < 0)
+                        throw new NoSuchElementException();
+                    last = next;
+                    next = nextOccupied(next + 1);
+                    return coordinate(last);
+                }
+
+                @Override
+                public void remove() {
+                    if (last < 0)
+                        throw new IllegalStateException();
+                    clearOccupied(last);
+                    last = -1;
+                }
+            };
+        }
+
+        @Override
+        public Spliterator<Coordinate> spliterator() {
+            return Spliterators.spliterator(this, Spliterator.DISTINCT | Spliterator.NONNULL);
+        }
+
+        @Override
+        public Object[] toArray() {
+            return Snake.toArray(this, new Object[0]);
+        }
+
+        @Override
+        public <T> T[] toArray(T[] a) {
+            return Snake.toArray(this, a);
+        }
+
+        @Override
+        public Object clone() {
+            return new HashSet<>(this);
+        }
+    }
+
+    /**
+     * List view of the ring buffer, from head to tail. It can be edited like the LinkedList
+     * it once was, without changing the elements
+     */
+    private class Body extends LinkedList<Coordinate> {
+        /**
+         * @param i position in the body
+         * @throws IndexOutOfBoundsException if there is no segment at that position
+         */
+        private void checkIndex(int i) {
+            if (i < 0 || i >= length)
+                throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + length);
+        }
+
+        @Override
+        public int size() {
+            return length;
+        }
+
+        @Override
+        public Coordinate get(int index) {
+            checkIndex(index);
+            return coordinate(cellAt(index));
+        }
+
+        @Override
+        public Coordinate set(int index, Coordinate c) {
+            checkIndex(index);
+            int cell = cellOf(c);
+            int i = (head + index) & (cells.length - 1);
+            Coordinate old = coordinate(cells[i]);
+            cells[i] = cell;
+            return old;
+        }
+
+        @Override
+        public void add(int index, Coordinate c) {
+            if (index < 0 || index > length)
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + length);
+            insert(index, cellOf(c));
+            modCount++;
+        }
+
+        @Override
+        public Coordinate remove(int index) {
+            checkIndex(index);
+            modCount++;
+            return coordinate(removeAt(index));
+        }
+
+        @Override
+        public void clear() {
+            length = 0;
+            modCount++;
+        }
+
+        @Override
+        public int indexOf(Object o) {
+            if (!(o instanceof Coordinate) || !((Coordinate) o).inBounds(mazeSize))
+                return -1;
+            int cell = cellOf((Coordinate) o);
+            for (int i = 0; i < length; i++)
+                if (cellAt(i) == cell)
+                    return i;
+            return -1;
+        }
+
+        @Override
+        public int lastIndexOf(Object o) {
+            if (!(o instanceof Coordinate) || !((Coordinate) o).inBounds(mazeSize))
+                return -1;
+            int cell = cellOf((Coordinate) o);
+            for (int i = length - 1; i >= 0; i--)
+                if (cellAt(i) == cell)
+                    return i;
+            return -1;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return indexOf(o) >= 0;
+        }
+
+        @Override
+        public boolean addAll(Collection<? extends Coordinate> c) {
+            return addAll(length, c);
+        }
+
+        @Override
+        public boolean addAll(int index, Collection<? extends Coordinate> c) {
+            if (index < 0 || index > length)
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + length);
+            Object[] a = c.toArray();
+            for (Object o : a)
+                add(index++, (Coordinate) o);
+            return a.length > 0;
+        }
+
+        @Override
+        public Coordinate getFirst() {
+            if (length == 0)
+                throw new NoSuchElementException();
+            return get(0);
+        }
+
+        @Override
+        public Coordinate getLast() {
+            if (length == 0)
+                throw new NoSuchElementException();
+            return get(length - 1);
+        }
+
+        @Override
+        public Coordinate removeFirst() {
+            if (length == 0)
+                throw new NoSuchElementException();
+            return remove(0);
+        }
+
+        @Override
+        public Coordinate removeLast() {
+            if (length == 0)
+                throw new NoSuchElementException();
+            return remove(length - 1);
+        }
+
+        @Override
+        public void addFirst(Coordinate c) {
+            add(0, c);
+        }
+
+        @Override
+        public void addLast(Coordinate c) {
+            add(length, c);
+        }
+
+        @Override
+        public boolean add(Coordinate c) {
+            addLast(c);
+            return true;
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            return removeFirstOccurrence(o);
+        }
+
+        @Override
+        public Coordinate peek() {
+            return peekFirst();
+        }
+
+        @Override
+        public Coordinate element() {
+            return getFirst();
+        }
+
+        @Override
+        public Coordinate poll() {
+            return pollFirst();
+        }
+
+        @Override
+        public Coordinate remove() {
+            return removeFirst();
+        }
+
+        @Override
+        public boolean offer(Coordinate c) {
+            return add(c);
+        }
+
+        @Override
+        public boolean offerFirst(Coordinate c) {
+            addFirst(c);
+            return true;
+        }
+
+        @Override
+        public boolean offerLast(Coordinate c) {
+            addLast(c);
+            return true;
+        }
+
+        @Override
+        public Coordinate peekFirst() {
+            return length == 0 ? null : get(0);
+        }
+
+        @Override
+        public Coordinate peekLast() {
+            return length == 0 ? null : get(length - 1);
+        }
+
+        @Override
+        public Coordinate pollFirst() {
+            return length == 0 ? null : remove(0);
+        }
+
+        @Override
+        public Coordinate pollLast() {
+            return length == 0 ? null : remove(length - 1);
+        }
+
+        @Override
+        public void push(Coordinate c) {
+            addFirst(c);
+        }
+
+        @Override
+        public Coordinate pop() {
+            return removeFirst();
+        }
+
+        @Override
+        public boolean removeFirstOccurrence(Object o) {
+            int i = indexOf(o);
+            if (i < 0)
+                return false;
+            remove(i);
+            return true;
+        }
+
+        @Override
+        public boolean removeLastOccurrence(Object o) {
+            int i = lastIndexOf(o);
+            if (i < 0)
+                return false;
+            remove(i);
+            return true;
+        }
+
+        @Override
+        public ListIterator<Coordinate> listIterator(final int index) {
+            if (index < 0 || index > length)
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + length);
+            return new ListIterator<Coordinate>() {
+                private int cursor = index;
+                private int last = -1;
+
+                @Override
+                public boolean hasNext() {
+                    return cursor < length;
+                }
+
+                @Override
+                public Coordinate next() {
+                    if (cursor >= length)
+                        throw new NoSuchElementException();
+                    last = cursor++;
+                    return get(last);
+                }
+
+                @Override
+                public boolean hasPrevious() {
+                    return cursor > 0;
+                }
+
+                @Override
+                public Coordinate previous() {
+                    if (cursor <= 0)
+                        throw new NoSuchElementException();
+                    last = --cursor;
+                    return get(last);
+                }
+
+                @Override
+                public int nextIndex() {
+                    return cursor;
+                }
+
+                @Override
+                public int previousIndex() {
+                    return cursor - 1;
+                }
+
+                @Override
+                public void remove() {
+                    if (last < 0)
+                        throw new IllegalStateException();
+                    Body.this.remove(last);
+                    if (last < cursor)
+                        cursor--;
+                    last = -1;
+                }
+
+                @Override
+                public void set(Coordinate c) {
+                    if (last < 0)
+                        throw new IllegalStateException();
+                    Body.this.set(last, c);
+                }
+
+                @Override
+                public void add(Coordinate c) {
+                    Body.this.add(cursor++, c);
+                    last = -1;
+                }
+            };
+        }
+
+        @Override
+        public Iterator<Coordinate> descendingIterator() {
+            final ListIterator<Coordinate> it = listIterator(length);
+            return new Iterator<Coordinate>() {
+                @Override
+                public boolean hasNext() {
+                    return it.hasPrevious();
+                }
+
+                @Override
+                public Coordinate next() {
+                    return it.previous();
+                }
+
+                @Override
+                public void remove() {
+                    it.remove();
+                }
+            };
+        }
+
+        @Override
+        public Spliterator<Coordinate> spliterator() {
+            return Spliterators.spliterator(this, Spliterator.ORDERED | Spliterator.NONNULL);
+        }
+
+        @Override
+        public Object[] toArray() {
+            return Snake.toArray(this, new Object[0]);
+        }
+
+        @Override
+        public <T> T[] toArray(T[] a) {
+            return Snake.toArray(this, a);
+        }
+
+        @Override
+        public Object clone() {
+            return new LinkedList<>(this);
+        }
     }
 }
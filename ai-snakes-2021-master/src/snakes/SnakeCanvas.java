@@ -16,7 +16,8 @@ import javax.swing.JPanel;
  * This class is responsible for the snakes canvas in GUI
  */
 public class SnakeCanvas extends JPanel {
-	private static final int CELL_SIZE = 40;
+	private static final int CELL_SIZE = 40; // size of a cell on small boards, and of the border
+	private static final int MAX_BOARD_SIZE = 800; // larger boards are drawn with smaller cells
 	private static final int PAD = 2;
 	private static final int SMALLER_PAD = 6;
 	private static final int SMALL_PAD = 6;
@@ -28,9 +29,12 @@ public class SnakeCanvas extends JPanel {
 	private static final Color backgroundColor = new Color(0, 0, 0);
 	private static final Color borderColor = new Color(22, 50, 76);
 	private static final Color appleColor = Color.red;
+	private static final Color[] otherColors = { new Color(255, 170, 60), new Color(120, 230, 120),
+			new Color(230, 120, 230), new Color(250, 240, 110), new Color(170, 140, 255), new Color(255, 140, 140) }; // snakes after the first two
 	private static ImageIcon apple;
 	Dimension renderSize;
 	private SnakeGame game;
+	private final int cellSize;
 
 	/**
 	 * Constructs snake canvas
@@ -45,7 +49,8 @@ public class SnakeCanvas extends JPanel {
 					Image.SCALE_SMOOTH);
 			apple = new ImageIcon(appleImage);
 		}
-		renderSize = new Dimension((game.mazeSize.x + 2) * CELL_SIZE, (game.mazeSize.y + 2) * CELL_SIZE);
+		cellSize = Math.max(1, Math.min(CELL_SIZE, MAX_BOARD_SIZE / Math.max(game.mazeSize.x, game.mazeSize.y)));
+		renderSize = new Dimension(game.mazeSize.x * cellSize + 2 * CELL_SIZE, game.mazeSize.y * cellSize + 2 * CELL_SIZE);
 	}
 
 	/**
@@ -54,12 +59,13 @@ public class SnakeCanvas extends JPanel {
 	 * @param g     game field
 	 * @param cell  cell to fill
 	 * @param color color to fill
-	 * @param pad   cell padding
+	 * @param pad   cell padding, for a cell of CELL_SIZE; it is scaled down with the cell
 	 */
 	private void fillCellWithPad(Graphics2D g, Coordinate cell, Color color, int pad) {
+		pad = pad * cellSize / CELL_SIZE;
 		g.setColor(color);
-		g.fillRect((cell.x + 1) * CELL_SIZE + pad, (cell.y + 1) * CELL_SIZE + pad, CELL_SIZE - 2 * pad,
-				CELL_SIZE - 2 * pad);
+		g.fillRect(CELL_SIZE + cell.x * cellSize + pad, CELL_SIZE + cell.y * cellSize + pad, cellSize - 2 * pad,
+				cellSize - 2 * pad);
 	}
 
 	/**
@@ -110,21 +116,30 @@ public class SnakeCanvas extends JPanel {
 		fillCellWithPad(g, game.appleCoordinate, appleColor, ApplePad);
 
 		Iterator<Coordinate> it = game.snake0.body.stream().iterator();
-		while (it.hasNext()) {
+		while (game.onBoard[0] && it.hasNext()) {
 			Coordinate bp = it.next();
 			fillCell(g, bp, color0);
 			fillSmallerCell(g, bp, bodyColor0); // print body
 		}
 
 		it = game.snake1.body.stream().iterator();
-		while (it.hasNext()) {
+		while (game.onBoard[1] && it.hasNext()) {
 			Coordinate bp = it.next();
 			fillCell(g, bp, color1);
 			fillSmallerCell(g, bp, bodyColor1); // print body
 		}
 
-		fillSmallCell(g, game.snake1.getHead(), new Color(0, 0, 0)); // head
-		fillSmallCell(g, game.snake0.getHead(), new Color(0, 0, 0)); // head
+		for (int i = 2; i < game.snakes.length; i++) {
+			if (!game.onBoard[i])
+				continue;
+			Color color = otherColors[(i - 2) % otherColors.length];
+			for (Coordinate bp : game.snakes[i].body)
+				fillCell(g, bp, color); // print body
+		}
+
+		for (int i = game.snakes.length - 1; i >= 0; i--)
+			if (game.onBoard[i])
+				fillSmallCell(g, game.snakes[i].getHead(), new Color(0, 0, 0)); // head
 
 		// Print the score on score board
 		g.setFont(new Font("Comic Sans MS", Font.PLAIN, 28));
@@ -132,6 +147,8 @@ public class SnakeCanvas extends JPanel {
 		g.drawString(game.gameResult,
 				renderSize.width / 2 - getFontMetrics(g.getFont()).stringWidth(game.gameResult) / 2,
 				renderSize.height - 10); // game results
+		if (game.snakes.length > 2)
+			return; // the rest of the score board is laid out for two bots
 
 		// Print snakes symbol on score board
 		g.setColor(new Color(92, 192, 255)); // outer
@@ -1,30 +1,91 @@
 package snakes;
 
-import java.io.FileWriter;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * Implements main game flow Run game for two bots
+ * Implements main game flow Run game for two bots, or for any number of bots on one board
  */
 public class SnakeGame {
-	private static final String LOG_FILE = "log.txt";
 	private static final long TIMEOUT_THRESHOLD = 1;// timeout threshold for taking a decision in seconds
-	public final Snake snake0, snake1;
+	private static final AtomicLong gameCount = new AtomicLong();
+	private static volatile String idPrefix = "game"; // start of the ids of games, unique to every JVM of a tournament
+	public final Snake[] snakes;
+	public final Snake snake0, snake1; // the first two snakes
 	public final Coordinate mazeSize;
-	private final Bot bot0, bot1;
-	private final Random rnd = new Random();
+	private final Bot[] bots;
+	private final Random rnd;
+	private final OccupancyGrid occupancy; // cells taken by the snakes, for placing apples and finding collisions
+	public final long seed; // seed of the random apple placement
 	public Coordinate appleCoordinate;
-	public String gameResult = "0 - 0";
-	public int appleEaten0 = 0;
+	public String gameResult;
+	public final int[] applesEaten; // apples eaten by every snake
+	public int appleEaten0 = 0; // apples eaten by the first two snakes
 	public int appleEaten1 = 0;
+	public final int[] points; // points earned by every snake, once the game is over
+	/**
+	 * Whether a snake is still on the board; a snake is removed when it loses while at
+	 * least two others play on, snakes that lose in the final step stay on the board
+	 */
+	public final boolean[] onBoard;
+	private int snakesOnBoard;
 	private int numIterationsAppleNotEaten;
+	private static final int APPLE_TTL = 11; // decisions before an apple that is not eaten moves
 	private int snakeSize;
+	public final String[] names;
 	public String name0, name1;
+	public final String id; // unique name of the game, used for its log and replay
 	public long startTime;
+	public final DecisionLatency[] latencies; // decision latencies of every bot in this game
+
+	private SnakesRunner[] runners;
+	private DecisionExecutor[] executors;
+	private final GameLogger log;
+	private ReplayWriter replay;
+	private boolean ended = false; // whether the bots, the log and the replay were released
+	private char[] board; // buffer for drawing the board in the log
+	private final GameView.Board viewState; // state behind the views of the bots
+	private final StepDelta delta; // changes of the last step, for bots that listen to them
+
+	// state of the current step, kept between steps to avoid allocation
+	private final Direction[] moves;
+	private final boolean[] timedOut, grow, dead, winners;
+	private final Coordinate[] oldHeads, oldTails;
+	private final int[] oldSizes;
+	private final long[] requestedAt; // System.nanoTime() at which every bot was asked for its decision
+	private final long[] decisionNanos; // time the last decision of every bot took
+
+	// tracing of the current step, see Tracing
+	private Object stepEvent; // event of the step, null if steps are not traced
+	private long appleNanos, logNanos; // time spent placing the apple and logging, if the step is traced
 
-	private SnakesRunner bot0_runner, bot1_runner;
+	/**
+	 * Whether both bots take their decision at the same time instead of one after another;
+	 * in games of more than two snakes, all bots always decide at the same time
+	 */
+	public boolean concurrentDecisions = false;
+
+	/**
+	 * Whether the bots are charged for the CPU time of their decision threads instead of the
+	 * time that passes, so a bot is not out of time because it waited for a CPU or for the
+	 * garbage collector; a decision is still stopped after {@link #wallClockCap} milliseconds.
+	 * A bot run by a {@link SubprocessBot} is charged for the time it took in its own JVM instead,
+	 * as measured there, and loses once it replies if that is over the time limit.
+	 * See {@link DecisionExecutor#enableCpuTime()}
+	 */
+	public boolean cpuTime = false;
+	public long wallClockCap = 3000; // time in millis a decision may take when charged for its CPU time
+
+	/**
+	 * Memory in bytes a decision may allocate, 0 for no budget. A bot over the budget is warned
+	 * once per game, or loses the game like a bot out of time if {@link #allocationPenalty} is set
+	 */
+	public long allocationBudget = 0;
+	public boolean allocationPenalty = false;
 
 	/**
 	 * Constructs SnakeGame class
@@ -40,199 +101,697 @@ public class SnakeGame {
 	 */
 	public SnakeGame(Coordinate mazeSize, Coordinate head0, Direction tailDir0, Coordinate head1, Direction tailDir1,
 			int size, Bot bot0, Bot bot1) {
+		this(mazeSize, head0, tailDir0, head1, tailDir1, size, bot0, bot1, new Random().nextLong());
+	}
+
+	/**
+	 * Constructs SnakeGame class with a given seed, so the apples are placed the same way every time
+	 *
+	 * @param mazeSize size of the game board
+	 * @param head0    initial coordinate of first snake's head
+	 * @param tailDir0 initial direction of first snake's tail
+	 * @param head1    initial coordinate of second snake's head
+	 * @param tailDir1 initial direction of first snake's tail
+	 * @param size     initial length of snakes
+	 * @param bot0     first smart snake bot
+	 * @param bot1     second smart snake bot
+	 * @param seed     seed of the random apple placement
+	 */
+	public SnakeGame(Coordinate mazeSize, Coordinate head0, Direction tailDir0, Coordinate head1, Direction tailDir1,
+			int size, Bot bot0, Bot bot1, long seed) {
+		this(mazeSize, new Coordinate[]{head0, head1}, new Direction[]{tailDir0, tailDir1}, size,
+				new Bot[]{bot0, bot1}, seed);
+	}
+
+	/**
+	 * Constructs SnakeGame class for any number of snakes
+	 *
+	 * @param mazeSize size of the game board
+	 * @param heads    initial coordinate of every snake's head
+	 * @param tailDirs initial direction of every snake's tail
+	 * @param size     initial length of snakes
+	 * @param bots     smart snake bot of every snake
+	 * @param seed     seed of the random apple placement
+	 */
+	public SnakeGame(Coordinate mazeSize, Coordinate[] heads, Direction[] tailDirs, int size, Bot[] bots, long seed) {
+		this(mazeSize, heads, tailDirs, size, bots, botNames(bots), seed);
+	}
+
+	/**
+	 * Constructs SnakeGame class; without bots, the game is neither logged nor recorded
+	 * and is only played through {@link #applyMoves(Direction...)}
+	 *
+	 * @param mazeSize size of the game board
+	 * @param heads    initial coordinate of every snake's head
+	 * @param tailDirs initial direction of every snake's tail
+	 * @param size     initial length of snakes
+	 * @param bots     smart snake bot of every snake, or null
+	 * @param names    names of the bots
+	 * @param seed     seed of the random apple placement
+	 */
+	SnakeGame(Coordinate mazeSize, Coordinate[] heads, Direction[] tailDirs, int size, Bot[] bots, String[] names,
+			long seed) {
+		int n = heads.length;
+		if (n < 2 || tailDirs.length != n || names.length != n)
+			throw new IllegalArgumentException("A game needs at least two snakes, each with a head, a tail direction and a name");
 		snakeSize = size;
 		this.startTime = System.currentTimeMillis();
 		this.mazeSize = mazeSize;
-		this.snake0 = new Snake(head0, tailDir0, size, mazeSize);
-		this.snake1 = new Snake(head1, tailDir1, size, mazeSize);
-		this.bot0 = bot0;
-		this.bot1 = bot1;
-		this.name0 = bot0.getClass().getSimpleName();
-		this.name1 = bot1.getClass().getSimpleName();
+		this.snakes = new Snake[n];
+		for (int i = 0; i < n; i++)
+			snakes[i] = new Snake(heads[i], tailDirs[i], size, mazeSize);
+		this.snake0 = snakes[0];
+		this.snake1 = snakes[1];
+		this.bots = bots;
+		this.names = names;
+		this.name0 = names[0];
+		this.name1 = names[1];
+		this.seed = seed;
+		this.rnd = new Random(seed);
+		this.occupancy = new OccupancyGrid(mazeSize);
+		int length = 0;
+		for (Snake snake : snakes) {
+			occupancy.occupy(snake);
+			length += snake.body.size();
+		}
+		if (occupancy.freeCount() != mazeSize.x * mazeSize.y - length)
+			throw new IllegalArgumentException("The snakes overlap at the start");
+
+		this.applesEaten = new int[n];
+		this.points = new int[n];
+		this.onBoard = new boolean[n];
+		Arrays.fill(onBoard, true);
+		this.snakesOnBoard = n;
+		this.gameResult = joinScores(points);
+		this.moves = new Direction[n];
+		this.timedOut = new boolean[n];
+		this.grow = new boolean[n];
+		this.dead = new boolean[n];
+		this.winners = new boolean[n];
+		this.oldHeads = new Coordinate[n];
+		this.oldTails = new Coordinate[n];
+		this.oldSizes = new int[n];
+		this.requestedAt = new long[n];
+		this.decisionNanos = new long[n];
+		this.latencies = new DecisionLatency[n];
+		for (int i = 0; i < n; i++)
+			latencies[i] = new DecisionLatency(TimeUnit.SECONDS.toNanos(TIMEOUT_THRESHOLD));
 
 		appleCoordinate = randomNonOccupiedCell();
-
-		this.bot0_runner = new SnakesRunner(bot0, snake0, snake1, mazeSize, appleCoordinate);
-		this.bot1_runner = new SnakesRunner(bot1, snake1, snake0, mazeSize, appleCoordinate);
+		this.viewState = new GameView.Board(mazeSize, snakes, onBoard, occupancy.counts());
+		viewState.apple(appleCoordinate, APPLE_TTL);
+		for (int i = 0; i < n; i++)
+			viewState.opponents[i] = opponentsOf(i);
+		this.delta = new StepDelta(n);
+		this.id = String.format("%s_%06d_%s", idPrefix, gameCount.incrementAndGet(), String.join("_vs_", names));
+
+		if (bots == null) {
+			this.log = GameLogger.disabled();
+			return;
+		}
+		this.log = GameLogger.open(id);
+		this.replay = ReplayWriter.open(id, mazeSize, heads, tailDirs, size, names, seed, appleCoordinate);
+
+		this.runners = new SnakesRunner[n];
+		this.executors = new DecisionExecutor[n];
+		for (int i = 0; i < n; i++) {
+			runners[i] = new SnakesRunner(bots[i], new GameView(viewState, i), delta);
+			runners[i].game = id;
+			runners[i].botName = names[i];
+			executors[i] = new DecisionExecutor(runners[i], bots[i]);
+		}
 	}
 
 	/**
-	 * Converts game to string representation
+	 * Sets the start of the ids of all games created afterwards, so games played in
+	 * different JVMs of a tournament do not share their logs
 	 *
-	 * @return game state as a string
+	 * @param prefix start of the ids, "game" by default
 	 */
-	public String toString() {
-		char[][] cc = new char[mazeSize.x][mazeSize.y];
-		for (int x = 0; x < mazeSize.x; x++)
-			for (int y = 0; y < mazeSize.y; y++)
-				cc[x][y] = '.';
-
-		// Coordinate of head of first snake on board
-		Coordinate h0 = snake0.getHead();
-		cc[h0.x][h0.y] = 'h';
-
-		// Coordinate of head of second snake on board
-		Coordinate h1 = snake1.getHead();
-		cc[h1.x][h1.y] = 'H';
-
-		Iterator<Coordinate> it = snake0.body.stream().skip(1).iterator();
-		while (it.hasNext()) {
-			Coordinate bp = it.next();
-			cc[bp.x][bp.y] = 'b';
-		}
+	static void setIdPrefix(String prefix) {
+		idPrefix = prefix;
+	}
 
-		it = snake1.body.stream().skip(1).iterator();
-		while (it.hasNext()) {
-			Coordinate bp = it.next();
-			cc[bp.x][bp.y] = 'B';
-		}
+	/**
+	 * Creates a runner that asks a bot for the decisions of a snake, in a game without bots
+	 * played through {@link #applyMoves(Direction...)}, see {@link WarmUp}
+	 *
+	 * @param snake number of the snake
+	 * @param bot   bot deciding the snake's moves
+	 * @return runner handing the bot a view of the board
+	 */
+	SnakesRunner runner(int snake, Bot bot) {
+		SnakesRunner runner = new SnakesRunner(bot, new GameView(viewState, snake), delta);
+		runner.game = id;
+		runner.botName = names[snake];
+		return runner;
+	}
 
-		cc[appleCoordinate.x][appleCoordinate.y] = 'X';
+	/**
+	 * @param bots bots of a game
+	 * @return simple class names of the bots
+	 */
+	private static String[] botNames(Bot[] bots) {
+		String[] names = new String[bots.length];
+		for (int i = 0; i < bots.length; i++)
+			names[i] = bots[i] instanceof SubprocessBot
+					? ((SubprocessBot) bots[i]).botClass.getSimpleName()
+					: bots[i].getClass().getSimpleName();
+		return names;
+	}
 
+	/**
+	 * @param scores score of every snake
+	 * @return scores in the form "1 - 0"
+	 */
+	private static String joinScores(int[] scores) {
 		StringBuilder sb = new StringBuilder();
-		for (int y = mazeSize.y - 1; y >= 0; y--) {
-			for (int x = 0; x < mazeSize.x; x++)
-				sb.append(cc[x][y]);
-			if (y != 0)
-				sb.append("\n");
+		for (int i = 0; i < scores.length; i++) {
+			if (i > 0)
+				sb.append(" - ");
+			sb.append(scores[i]);
 		}
 		return sb.toString();
 	}
 
 	/**
-	 * Outputs text to stdout and file
+	 * @param snake number of a snake on the board
+	 * @return all other snakes on the board
+	 */
+	private Snake[] opponentsOf(int snake) {
+		Snake[] opponents = new Snake[snakesOnBoard - 1];
+		int k = 0;
+		for (int i = 0; i < snakes.length; i++)
+			if (i != snake && onBoard[i])
+				opponents[k++] = snakes[i];
+		return opponents;
+	}
+
+	/**
+	 * Converts game to string representation.
+	 * The board is drawn into a buffer that is reused for every step
+	 *
+	 * @return game state as a string
+	 */
+	public String toString() {
+		int width = mazeSize.x + 1; // one line of the board, including the line break
+		if (board == null)
+			board = new char[width * mazeSize.y - 1];
+		for (int i = 0; i < board.length; i++)
+			board[i] = i % width == mazeSize.x ? '\n' : '.';
+
+		// Coordinate of head of each snake on board
+		for (int i = 0; i < snakes.length; i++)
+			if (onBoard[i])
+				board[boardIndex(snakes[i].getHead())] = headChar(i);
+
+		for (int i = 0; i < snakes.length; i++)
+			if (onBoard[i])
+				drawBody(snakes[i], bodyChar(i));
+
+		board[boardIndex(appleCoordinate)] = 'X';
+
+		return new String(board);
+	}
+
+	/**
+	 * @param snake number of a snake
+	 * @return character of the snake's head on the board: h and H for the first two snakes, then @
+	 */
+	private static char headChar(int snake) {
+		return snake == 0 ? 'h' : snake == 1 ? 'H' : '@';
+	}
+
+	/**
+	 * @param snake number of a snake
+	 * @return character of the snake's body on the board: b and B for the first two snakes, then the snake's number
+	 */
+	private static char bodyChar(int snake) {
+		return snake == 0 ? 'b' : snake == 1 ? 'B' : Character.forDigit(snake % 10, 10);
+	}
+
+	/**
+	 * Draws the body of a snake, without its head, on the board buffer
+	 *
+	 * @param snake snake to draw
+	 * @param c     character of a body segment
+	 */
+	private void drawBody(Snake snake, char c) {
+		Iterator<Coordinate> it = snake.body.iterator();
+		it.next();
+		while (it.hasNext())
+			board[boardIndex(it.next())] = c;
+	}
+
+	/**
+	 * @param c coordinate on the board
+	 * @return index of the coordinate in the board buffer, where the top line comes first
+	 */
+	private int boardIndex(Coordinate c) {
+		return (mazeSize.y - 1 - c.y) * (mazeSize.x + 1) + c.x;
+	}
+
+	/**
+	 * Outputs text to the game's log
 	 *
 	 * @param text text that should be displayed
 	 */
 	private void output(String text) {
 		// System.out.println(text);
-		FileWriter fw;
-		try {
-			fw = new FileWriter(LOG_FILE, true);
-		} catch (IOException e) {
-			e.printStackTrace();
-			return;
+		log.log(text);
+	}
+
+	/**
+	 * Asks a bot for its decision, without waiting for it
+	 *
+	 * @param snake number of the bot's snake
+	 */
+	private void requestDecision(int snake) {
+		requestedAt[snake] = System.nanoTime();
+		executors[snake].request(chargesCpuTime(snake));
+	}
+
+	/**
+	 * @param snake number of the bot's snake
+	 * @return True - if the decisions of the bot are charged for the CPU time of its thread
+	 */
+	private boolean chargesCpuTime(int snake) {
+		return cpuTime && !(bots[snake] instanceof SubprocessBot);
+	}
+
+	/**
+	 * @return time in millis at which a decision requested now must be taken
+	 */
+	private long decisionDeadline() {
+		return System.currentTimeMillis() + (cpuTime ? wallClockCap : TIMEOUT_THRESHOLD * 1000);
+	}
+
+	/**
+	 * Waits until a bot has taken its decision, interrupting it at the deadline or once it
+	 * has used up its CPU time, and records how long the decision took, or the time it was charged,
+	 * and the memory it allocated. The memory a bot run by a {@link SubprocessBot} allocates is not
+	 * measured, as it is allocated in the bot's own JVM, and neither is the CPU time of its thread,
+	 * which only waits for the reply; see {@link #cpuTime}
+	 *
+	 * @param snake    number of the bot's snake
+	 * @param deadline time in mills at which the decision must be taken
+	 * @return false - if the bot lost the game by taking too long, throwing an exception or allocating over the budget with the penalty
+	 */
+	private boolean awaitDecision(int snake, long deadline) throws InterruptedException {
+		DecisionExecutor executor = executors[snake];
+		long limitNanos = TimeUnit.SECONDS.toNanos(TIMEOUT_THRESHOLD);
+		boolean chargesCpuTime = chargesCpuTime(snake);
+		if (!executor.await(deadline, chargesCpuTime ? limitNanos : 0)) {
+			decisionNanos[snake] = chargesCpuTime ? executor.cpuNanos : System.nanoTime() - requestedAt[snake];
+			latencies[snake].record(decisionNanos[snake], true);
+			System.out.println(names[snake] + " took too long to make a decision");
+			return false;
+		}
+		if (chargesCpuTime)
+			decisionNanos[snake] = executor.cpuNanos;
+		else if (cpuTime)
+			decisionNanos[snake] = ((SubprocessBot) bots[snake]).lastBotNanos;
+		else
+			decisionNanos[snake] = runners[snake].decisionNanos;
+		if (cpuTime && !chargesCpuTime && decisionNanos[snake] > limitNanos) {
+			latencies[snake].record(decisionNanos[snake], true);
+			System.out.println(names[snake] + " took too long to make a decision");
+			return false;
 		}
+		latencies[snake].record(decisionNanos[snake], false);
+		long allocated = runners[snake].allocatedBytes;
+		boolean measured = allocated >= 0 && !(bots[snake] instanceof SubprocessBot);
+		boolean overBudget = measured && allocationBudget > 0 && allocated > allocationBudget;
+		if (measured)
+			latencies[snake].recordAllocation(allocated, overBudget);
+		if (executor.failure != null) {
+			executor.failure.printStackTrace();
+			System.out.println(names[snake] + " threw an exception");
+			return false; // bot threw an exception and lost the game
+		}
+		if (overBudget && (allocationPenalty || latencies[snake].overAllocationBudget == 1))
+			System.out.println(names[snake] + " allocated " + allocated / 1024 + " KB in a decision, over the budget of "
+					+ allocationBudget / 1024 + " KB");
+		return !overBudget || !allocationPenalty;
+	}
 
-		try {
-			fw.write(text + "\n");
-		} catch (IOException e) {
-			e.printStackTrace();
-		} finally {
+	/**
+	 * Stops the threads of all bots, closes the bots that hold resources, such as a
+	 * {@link SubprocessBot}, and their class loaders, and closes the log, once the game is over.
+	 * Does nothing if the game has already ended
+	 */
+	private void endGame() {
+		if (ended)
+			return;
+		ended = true;
+		if (executors != null)
+			for (DecisionExecutor executor : executors)
+				executor.shutdown();
+		if (bots != null) {
+			for (Bot bot : bots) {
+				if (bot instanceof AutoCloseable) {
+					try {
+						((AutoCloseable) bot).close();
+					} catch (Exception e) {
+						e.printStackTrace();
+					}
+				}
+				BotLoader.release(bot);
+			}
+		}
+		output(gameResult);
+		log.close();
+		if (replay != null) {
 			try {
-				fw.close();
+				replay.close(gameResult);
 			} catch (IOException e) {
 				e.printStackTrace();
 			}
+			replay = null;
 		}
 	}
 
 	/**
-	 * Run one game step, return whether to continue the game
-	 *
-	 * @return whether to continue the game
+	 * @param snake number of a snake
+	 * @return True - if the thread of the snake's bot did not stop after being interrupted in this game,
+	 * so the bot is quarantined
 	 */
-	public boolean runOneStep() throws InterruptedException {
-		output(toString());
-
-		// the first bot takes a decision of next move
+	public boolean isOrphaned(int snake) {
+		return executors != null && executors[snake].isOrphaned();
+	}
 
-		bot0_runner.apple = appleCoordinate;
-		Thread bot0_thread = new Thread(bot0_runner);
-		boolean s0timeout = false;
+	/**
+	 * Ends a game that stopped before it was over, because it was interrupted or failed:
+	 * its result is "interrupted", and the bots, the log and the replay are released as at the
+	 * end of a finished game. Does nothing once the game is over
+	 */
+	public void abandon() {
+		if (ended)
+			return;
+		gameResult = "interrupted";
+		endGame();
+	}
 
-		try {
-			bot0_thread.start();
-			bot0_thread.join(TIMEOUT_THRESHOLD * 1000);
-		} catch (Exception e) {
-			s0timeout = true; // bot threw an exception and lost the game
-			System.out.println(bot0.getClass().getSimpleName() + " threw an exception");
-		}
-		if (bot0_thread.isAlive()) {
-			bot0_thread.interrupt();
-			s0timeout = true;
-			System.out.println(bot0.getClass().getSimpleName() + " took too long to make a decision");
-		}
+	/**
+	 * Ends the game and awards one point to every snake in winners
+	 */
+	private void finish() {
+		for (int i = 0; i < snakes.length; i++)
+			points[i] = winners[i] ? 1 : 0;
+		gameResult = joinScores(points);
+		endGame();
+	}
 
-		Direction d0 = bot0_runner.chosen_direction;
+	/**
+	 * Removes a snake from the board before the moves of the next step, while the others play on
+	 *
+	 * @param snake number of the snake
+	 */
+	void eliminate(int snake) {
+		eliminate(snake, viewState.step + 1);
+	}
 
-		// the second bot takes a decision of next move
-		bot1_runner.apple = appleCoordinate;
-		Thread bot1_thread = new Thread(bot1_runner);
-		boolean s1timeout = false;
+	/**
+	 * Removes a snake from the board while the others play on
+	 *
+	 * @param snake number of the snake
+	 * @param step  number of the step it is removed in
+	 */
+	private void eliminate(int snake, int step) {
+		if (!onBoard[snake])
+			return;
+		delta.eliminatedAt[snake] = step;
+		onBoard[snake] = false;
+		snakesOnBoard--;
+		occupancy.release(snakes[snake]);
+		if (replay != null)
+			replay.eliminate(snake);
+		if (executors != null)
+			executors[snake].shutdown();
+		for (int i = 0; i < snakes.length; i++)
+			if (onBoard[i])
+				viewState.opponents[i] = opponentsOf(i);
+	}
 
+	/**
+	 * Records the moves of a step and the apple after it in the replay
+	 *
+	 * @param moves move of every snake
+	 */
+	private void recordStep(Direction[] moves) {
+		if (replay == null)
+			return;
 		try {
-			bot1_thread.start();
-			bot1_thread.join(TIMEOUT_THRESHOLD * 1000);
-		} catch (Exception e) {
-			s1timeout = true;// bot threw an exception and lost the game
-			System.out.println(bot1.getClass().getSimpleName() + " threw an exception");
+			replay.step(moves, appleCoordinate);
+		} catch (IOException e) {
+			e.printStackTrace();
+			replay = null; // stop recording this game
 		}
-		if (bot1_thread.isAlive()) {
-			bot1_thread.interrupt();
-			s1timeout = true;
-			System.out.println(bot1.getClass().getSimpleName() + " took too long to make a decision");
+	}
+
+	/**
+	 * Run one game step, return whether to continue the game
+	 *
+	 * @return whether to continue the game
+	 */
+	public boolean runOneStep() throws InterruptedException {
+		stepEvent = Tracing.TRACER.beginStep();
+		long start = clock();
+		int step = viewState.step + 1;
+		int snakesAtStart = snakesOnBoard;
+		if (log.logsBoard())
+			output(toString());
+		long decisionStart = clock();
+		logNanos = decisionStart - start;
+		appleNanos = 0;
+
+		int n = snakes.length;
+		if (concurrentDecisions || n > 2) {
+			// all bots take a decision of next move at the same time, against one deadline
+			long deadline = decisionDeadline();
+			for (int i = 0; i < n; i++)
+				if (onBoard[i])
+					requestDecision(i);
+			for (int i = 0; i < n; i++)
+				timedOut[i] = onBoard[i] && !awaitDecision(i, deadline);
+		} else {
+			// the bots take a decision of next move one after another
+			for (int i = 0; i < n; i++) {
+				timedOut[i] = false;
+				if (!onBoard[i])
+					continue;
+				requestDecision(i);
+				timedOut[i] = !awaitDecision(i, decisionDeadline());
+			}
 		}
+		long decisionEnd = clock();
 
-		Direction d1 = bot1_runner.chosen_direction;
+		int remaining = 0;
+		for (int i = 0; i < n; i++) {
+			moves[i] = onBoard[i] ? runners[i].chosen_direction : null;
+			if (onBoard[i] && !timedOut[i])
+				remaining++;
+		}
 
 		/*
-		 * Stopping game condition - one of the snakes decides what it's next move too
-		 * long
+		 * Stopping game condition - the snakes that decide what their next move is too
+		 * long are out, and the game is over unless two snakes are left
 		 */
-		boolean timeout = s0timeout || s1timeout;
-		if (timeout) {
-			gameResult = "";
-			String result = (s0timeout ? 0 : 1) + " - " + (s1timeout ? 0 : 1);
-			gameResult += result;
-			return false;
+		if (remaining < snakesOnBoard) {
+			if (remaining <= 1) {
+				for (int i = 0; i < n; i++)
+					winners[i] = onBoard[i] && !timedOut[i]; // the last snake left wins
+				finish();
+				traceStep(step, snakesAtStart, start, decisionEnd - decisionStart);
+				return false;
+			}
+			for (int i = 0; i < n; i++)
+				if (timedOut[i])
+					eliminate(i);
 		}
 
-		output("snake0->" + d0 + ", snake1->" + d1);
-		output("Apples eaten: " + appleEaten0 + " - " + appleEaten1);
+		boolean running = applyMoves(moves);
+		traceStep(step, snakesAtStart, start, decisionEnd - decisionStart);
+		return running;
+	}
 
-		// var grow = move % 3 == 2;
-		boolean grow0 = snake0.getHead().moveTo(d0).equals(appleCoordinate);
-		boolean grow1 = snake1.getHead().moveTo(d1).equals(appleCoordinate);
+	/**
+	 * @return {@link System#nanoTime()} if the current step is traced, otherwise 0
+	 */
+	private long clock() {
+		return stepEvent != null ? System.nanoTime() : 0;
+	}
+
+	/**
+	 * Reports the step that just ended to the tracer, if it is traced
+	 *
+	 * @param step          number of the step
+	 * @param snakesAtStart number of snakes on the board at the start of the step
+	 * @param start         time at which the step started
+	 * @param decisions     time spent waiting for the decisions of the bots
+	 */
+	private void traceStep(int step, int snakesAtStart, long start, long decisions) {
+		if (stepEvent == null)
+			return;
+		long total = System.nanoTime() - start;
+		int slowest = -1;
+		int timeouts = 0;
+		for (int i = 0; i < snakes.length; i++) {
+			if (requestedAt[i] - start < 0)
+				continue; // not asked in this step
+			if (slowest < 0 || decisionNanos[i] > decisionNanos[slowest])
+				slowest = i;
+			if (timedOut[i])
+				timeouts++;
+		}
+		Tracing.TRACER.endStep(stepEvent, id, step, snakesAtStart, decisions, total - decisions - appleNanos - logNanos,
+				appleNanos, logNanos, slowest < 0 ? null : names[slowest], slowest < 0 ? 0 : decisionNanos[slowest], timeouts);
+		stepEvent = null;
+	}
+
+	/**
+	 * Apply the moves the snakes decided on, return whether to continue the game
+	 *
+	 * @param moves move of every snake, ignored for snakes no longer on the board
+	 * @return whether to continue the game
+	 */
+	public boolean applyMoves(Direction... moves) {
+		int n = snakes.length;
+		long logStart = clock();
+		if (log.logsMoves()) {
+			StringBuilder sb = new StringBuilder();
+			for (int i = 0; i < n; i++) {
+				if (!onBoard[i])
+					continue;
+				if (sb.length() > 0)
+					sb.append(", ");
+				sb.append("snake").append(i).append("->").append(moves[i]);
+			}
+			output(sb.toString());
+			output("Apples eaten: " + joinScores(applesEaten));
+		}
+		logNanos += clock() - logStart;
 
-		boolean wasGrow = grow0 || grow1;
+		// var grow = move % 3 == 2;
+		boolean wasGrow = false;
+		for (int i = 0; i < n; i++) {
+			grow[i] = onBoard[i] && snakes[i].getHead().moveTo(moves[i]).equals(appleCoordinate);
+			wasGrow |= grow[i];
+		}
 
-		boolean s0dead = !snake0.moveTo(d0, grow0);
-		boolean s1dead = !snake1.moveTo(d1, grow1);
+		viewState.step();
+		delta.step = viewState.step;
+		for (int i = 0; i < n; i++) {
+			dead[i] = false;
+			delta.heads[i] = -1;
+			delta.tails[i] = -1;
+			if (!onBoard[i])
+				continue;
+			Snake snake = snakes[i];
+			oldHeads[i] = snake.getHead();
+			oldTails[i] = snake.body.getLast();
+			oldSizes[i] = snake.body.size();
+			dead[i] = !snake.moveTo(moves[i], grow[i]);
+			occupancy.update(snake, oldHeads[i], oldTails[i], oldSizes[i]);
+			viewState.moved(i, !dead[i]);
+			if (!dead[i])
+				delta.heads[i] = snake.headCell();
+			if (!grow[i])
+				delta.tails[i] = oldTails[i].y * mazeSize.x + oldTails[i].x;
+		}
 
+		long appleStart = clock();
 		if (wasGrow || appleCoordinate == null) {
-			appleEaten0 = snake0.body.size() - snakeSize;
-			appleEaten1 = snake1.body.size() - snakeSize;
+			for (int i = 0; i < n; i++)
+				applesEaten[i] = snakes[i].body.size() - snakeSize;
+			appleEaten0 = applesEaten[0];
+			appleEaten1 = applesEaten[1];
 			appleCoordinate = randomNonOccupiedCell();
 			numIterationsAppleNotEaten = 0; // reset the counter to disappear
+			delta.appleMoved = true;
 		} else {
+			delta.appleMoved = numIterationsAppleNotEaten == APPLE_TTL - 1;
 			// Apple must change place if not eaten after 10 iterations
-			if (numIterationsAppleNotEaten == 10) {
+			if (numIterationsAppleNotEaten == APPLE_TTL - 1) {
 				// reset counter and change apple
 				appleCoordinate = randomNonOccupiedCell();
 				numIterationsAppleNotEaten = 0;
 			} else
 				numIterationsAppleNotEaten++;
 		}
-		s0dead |= snake0.headCollidesWith(snake1);
-		s1dead |= snake1.headCollidesWith(snake0);
+		viewState.apple(appleCoordinate, APPLE_TTL - numIterationsAppleNotEaten);
+		delta.apple = viewState.apple;
+		delta.appleTTL = viewState.appleTTL;
+		long replayStart = clock();
+		appleNanos = replayStart - appleStart;
+		recordStep(moves);
+		logNanos += clock() - replayStart;
+
+		// a head sharing its cell with any other segment collided with another snake
+		int dying = 0;
+		for (int i = 0; i < n; i++) {
+			if (!onBoard[i])
+				continue;
+			dead[i] |= occupancy.segmentsOn(snakes[i].getHead()) > 1;
+			if (dead[i])
+				dying++;
+		}
 
 		/*
-		 * stopping game condition - one of snakes collides with something
+		 * stopping game condition - all snakes but one collide with something
 		 */
-		boolean cont = !(s0dead || s1dead);
+		if (dying == 0)
+			return true;
+		if (snakesOnBoard - dying >= 2) {
+			for (int i = 0; i < n; i++)
+				if (dead[i])
+					eliminate(i, viewState.step); // after the moves of this step
+			return true;
+		}
 
-		if (!cont) {
-			gameResult = "";
-			String result = "0 - 0";
-			if (s0dead ^ s1dead)
-				result = (s0dead ? 0 : 1) + " - " + (s1dead ? 0 : 1);
-			else if (s0dead && s1dead)
-				result = (appleEaten0 > appleEaten1 ? 1 : 0) + " - " + (appleEaten1 > appleEaten0 ? 1 : 0);
+		if (snakesOnBoard - dying == 1) {
+			// the last snake left wins
+			for (int i = 0; i < n; i++)
+				winners[i] = onBoard[i] && !dead[i];
+		} else {
+			// all snakes left collided; the one that has eaten most apples wins, unless it is a tie
+			int best = -1;
+			boolean tie = false;
+			for (int i = 0; i < n; i++) {
+				if (!dead[i])
+					continue;
+				if (best < 0 || applesEaten[i] > applesEaten[best]) {
+					best = i;
+					tie = false;
+				} else if (applesEaten[i] == applesEaten[best])
+					tie = true;
+			}
+			for (int i = 0; i < n; i++)
+				winners[i] = i == best && !tie;
+		}
+		finish();
+		return false;
+	}
 
-			gameResult += result;
+	/**
+	 * Decides the game by the snakes' length once its time or step limit is reached:
+	 * the longest snake on the board wins, unless it is a tie
+	 */
+	public void finishByLimit() {
+		int best = -1;
+		boolean tie = false;
+		for (int i = 0; i < snakes.length; i++) {
+			if (!onBoard[i])
+				continue;
+			if (best < 0 || snakes[i].body.size() > snakes[best].body.size()) {
+				best = i;
+				tie = false;
+			} else if (snakes[i].body.size() == snakes[best].body.size())
+				tie = true;
 		}
-		return cont;
+		for (int i = 0; i < snakes.length; i++)
+			winners[i] = i == best && !tie;
+		finish();
 	}
 
 	/**
@@ -245,24 +804,14 @@ public class SnakeGame {
 			} catch (InterruptedException e) {
 				return;
 			}
-
-		output(gameResult);
 	}
 
 	/**
-	 * Selects random non-occupied cell of maze
+	 * Selects random non-occupied cell of maze, in constant time
 	 *
 	 * @return random non-occupied coordinate of the game board
 	 */
 	private Coordinate randomNonOccupiedCell() {
-		while (true) {
-			Coordinate c = new Coordinate(rnd.nextInt(mazeSize.x), rnd.nextInt(mazeSize.y));
-			if (snake0.elements.contains(c))
-				continue;
-			if (snake1.elements.contains(c))
-				continue;
-
-			return c;
-		}
+		return occupancy.randomFreeCell(rnd);
 	}
 }
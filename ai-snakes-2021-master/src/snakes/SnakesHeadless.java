@@ -0,0 +1,63 @@
+package snakes;
+
+/**
+ * This class is responsible for running a game without the GUI window.
+ * Steps are played back to back, and the game is limited by the number
+ * of steps instead of wall-clock time
+ */
+public class SnakesHeadless implements Runnable {
+    /**
+     * Number of steps a game paced by {@link SnakesWindow} can take within its time limit
+     */
+    public final static int STEP_LIMIT_PER_GAME = SnakesWindow.TIME_LIMIT_PER_GAME / SnakesWindow.MIN_TIME_PER_STEP;
+
+    private final SnakeGame game;
+    private final int stepLimit;
+    public int steps = 0;
+
+    /**
+     * Creates a headless runner with the default step limit
+     * @param game main game flow with all its states within
+     */
+    public SnakesHeadless(SnakeGame game) {
+        this(game, STEP_LIMIT_PER_GAME);
+    }
+
+    /**
+     * Creates a headless runner
+     * @param game      main game flow with all its states within
+     * @param stepLimit maximal number of steps before the game is decided by length
+     */
+    public SnakesHeadless(SnakeGame game, int stepLimit) {
+        this.game = game;
+        this.stepLimit = stepLimit;
+    }
+
+    /**
+     * Runs the game until it ends or reaches the step limit. A game that is interrupted, or
+     * fails, is abandoned, see {@link SnakeGame#abandon()}
+     */
+    public void run() {
+        boolean running = true;
+        try {
+            while (running) {
+                try {
+                    running = game.runOneStep();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                steps++;
+
+                // check for step limit
+                if (running && steps >= stepLimit) {
+                    game.finishByLimit();
+                    running = false;
+                    System.out.println("Round step limit reached (" + stepLimit + " steps) \n");
+                }
+            }
+        } finally {
+            game.abandon();
+        }
+    }
+}
@@ -1,18 +1,27 @@
 package snakes;
 
 /**
- * This class is responsible for running bots in a separate threads
+ * This class is responsible for running bots in a separate threads,
+ * see {@link DecisionExecutor}
  */
 public class SnakesRunner implements Runnable {
     private Bot bot;
     private Snake snake;
-    private Snake opponent;
+    public Snake[] opponents; // snakes still on the board, replaced by the game when one is eliminated
+    private final boolean freeForAll; // whether the game started with more than two snakes
+    private final GameView view; // the board as seen by the bot, or null if the bot is given the snakes
+    private final StepDelta delta; // changes of the last step, for bots that listen to them
+    private int deliveredStep = 0; // last step handed to the bot's listener
+    String game; // id of the game, for tracing
+    String botName; // name of the bot in the game, for tracing
     private Coordinate mazeSize;
     public Coordinate apple;
     public Direction chosen_direction;
+    public long decisionNanos; // time the last decision took, listening to the step included
+    public long allocatedBytes; // memory the last decision allocated, -1 if it cannot be measured
 
     /**
-     * Construct SnakesRunner instance
+     * Construct SnakesRunner instance, see {@link #SnakesRunner(Bot, Snake, Snake[], Coordinate, Coordinate)}
      * @param bot running bot
      * @param snake snake that controlled by the current bot
      * @param opponent opponent's snake
@@ -20,19 +29,95 @@ public class SnakesRunner implements Runnable {
      * @param apple apple's coordinate
      */
     public SnakesRunner(Bot bot, Snake snake, Snake opponent, Coordinate mazeSize, Coordinate apple) {
+        this(bot, snake, new Snake[]{opponent}, mazeSize, apple);
+    }
+
+    /**
+     * Construct SnakesRunner instance for a game of any number of snakes. The bot is given the
+     * snakes, so it can neither be a {@link ViewBot} nor a {@link StepListener}, which need the
+     * view of the board and the changes of every step, see {@link #SnakesRunner(Bot, GameView, StepDelta)}
+     * @param bot running bot
+     * @param snake snake that controlled by the current bot
+     * @param opponents snakes of all other bots
+     * @param mazeSize size of the board
+     * @param apple apple's coordinate
+     * @throws IllegalArgumentException if the bot is a {@link ViewBot} or a {@link StepListener}
+     */
+    public SnakesRunner(Bot bot, Snake snake, Snake[] opponents, Coordinate mazeSize, Coordinate apple) {
+        if (bot instanceof ViewBot || bot instanceof StepListener)
+            throw new IllegalArgumentException(bot.getClass().getName() + " needs a GameView or the changes of every step,"
+                    + " use SnakesRunner(Bot, GameView, StepDelta)");
         this.bot = bot;
         this.snake = snake;
-        this.opponent = opponent;
+        this.opponents = opponents;
+        this.freeForAll = opponents.length > 1;
         this.mazeSize = mazeSize;
         this.apple = apple;
+        this.view = null;
+        this.delta = null;
+    }
+
+    /**
+     * Construct SnakesRunner instance that hands the bot a view of the board
+     * @param bot running bot
+     * @param view the board as seen by the bot, kept up to date by the game
+     * @param delta changes of the last step, handed to the bot before its decision if it is a {@link StepListener}
+     */
+    public SnakesRunner(Bot bot, GameView view, StepDelta delta) {
+        this.bot = bot;
+        this.view = view;
+        this.delta = delta;
+        this.snake = view.snake();
+        this.opponents = view.opponents();
+        this.freeForAll = view.snakes > 2;
+        this.mazeSize = view.mazeSize;
     }
 
     /**
      *  Execute chooseDirection method of the current bot and save chosen option in a field chosen_direction
-     *  This method is running in a separate thread
+     *  This method is running in the thread of the bot's {@link DecisionExecutor}
      */
     @Override
     public void run() {
-        chosen_direction = bot.chooseDirection(snake, opponent, mazeSize, apple);
+        Object event = Tracing.TRACER.beginDecision();
+        long allocated = DecisionExecutor.allocatedBytes();
+        long start = System.nanoTime();
+        Direction direction = null;
+        try {
+            if (delta != null && delta.step > deliveredStep && bot instanceof StepListener) {
+                deliveredStep = delta.step;
+                ((StepListener) bot).stepped(delta);
+            }
+            if (view != null)
+                direction = decide(bot, view);
+            else if (freeForAll)
+                direction = bot.chooseDirection(snake, opponents, mazeSize, apple);
+            else
+                direction = bot.chooseDirection(snake, opponents[0], mazeSize, apple);
+            chosen_direction = direction;
+        } finally {
+            decisionNanos = System.nanoTime() - start;
+            allocatedBytes = allocated < 0 ? -1 : DecisionExecutor.allocatedBytes() - allocated;
+            if (event != null)
+                Tracing.TRACER.endDecision(event, game, view != null ? view.step() + 1 : 0, botName,
+                        view != null ? view.you : 0, direction);
+        }
+    }
+
+    /**
+     * Ask a bot for its decision from a view of the board: a {@link ViewBot} is given the view,
+     * other bots the snakes on it
+     *
+     * @param bot  the bot
+     * @param view the board as seen by the bot
+     * @return the bot's decision
+     */
+    static Direction decide(Bot bot, GameView view) {
+        if (bot instanceof ViewBot)
+            return ((ViewBot) bot).chooseDirection(view);
+        Snake[] opponents = view.opponents();
+        if (view.snakes > 2)
+            return bot.chooseDirection(view.snake(), opponents, view.mazeSize, view.appleCoordinate());
+        return bot.chooseDirection(view.snake(), opponents[0], view.mazeSize, view.appleCoordinate());
     }
 }
\ No newline at end of file
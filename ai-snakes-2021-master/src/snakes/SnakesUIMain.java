@@ -5,6 +5,14 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
  * Implements tournament of the snake game with several rounds
@@ -12,27 +20,306 @@ import java.util.ArrayList;
 public class SnakesUIMain {
     private static final String LOG_DIRECTORY_PATH = "logs";
     private static FileWriter results_fw;
+    private static FileWriter latency_fw; // decision latencies of every bot in every game, as CSV
+    private static DecisionLatency[] total_latencies; // decision latencies of each bot over all games
+    private static Ratings ratings; // ratings of all bot versions that ever played, kept in logs/ratings.csv
     private static int[][] total_results_table;
+    private static final HashMap<Integer, String> retired_bots = new HashMap<>(); // names of the retired bots by their number
+    private static boolean headless = false;
+    private static int threads = 1;
+    private static int workers = 0; // worker JVMs to play the games in, none to play them in this JVM
+    private static final long WORKER_GAME_MARGIN = 5 * 60 * 1000; // time in millis a worker may take on top of the longest game, to start and warm up bots
+    // options that worker JVMs are started with, to play the games the same way
+    private static final List<String> GAME_OPTIONS = Arrays.asList("--log", "--replays", "--concurrent", "--cpu-time", "--wall-cap", "--alloc-budget", "--alloc-penalty", "--subprocess", "--bots", "--isolate", "--warmup", "--board", "--start0", "--start1", "--snake-size");
+    private static final ArrayList<String> game_settings = new ArrayList<>();
+    private static boolean concurrent_decisions = false;
+    private static boolean cpu_time = false; // charge the bots for the CPU time of their decisions
+    private static long wall_cap = 3000; // time in millis a decision may take when the bots are charged for CPU time
+    private static long alloc_budget = 0; // bytes a decision may allocate, 0 for no budget
+    private static boolean alloc_penalty = false; // whether a bot over the allocation budget loses the game
+    private static boolean subprocess_bots = false; // run every bot in a JVM of its own, see SubprocessBot
+    private static Random seeds = new Random(); // draws the seed of every game
+    private static long scheduled_games = 0; // games scheduled in the tournament so far, see Pairing.order
+    private static Coordinate maze_size = new Coordinate(14, 14);
+    private static Coordinate head0, head1; // null to place the snakes in opposite corners
+    private static int snake_size = 3;
+    private static boolean free_for_all = false;
+    private static int[] free_for_all_points; // points earned by each bot over all free-for-all games
 
     /**
      * UI Entry point
-     * @param args Two classes implementing the Bot interface
+     * @param args Classes implementing the Bot interface (at least two), optionally preceded by
+     *             --headless to play the games without GUI and delays, and
+     *             --threads N to play N games at the same time (implies --headless), and
+     *             --workers N to play the games in N worker JVMs, one game at a time in each (implies --headless), and
+     *             --concurrent to let both bots take their decision at the same time, and
+     *             --cpu-time to charge the bots for the CPU time of their decisions instead of the time that passes, and
+     *             --wall-cap MS to stop a decision charged for CPU time after MS milliseconds, 3000 by default, and
+     *             --alloc-budget MB to warn about bots that allocate more than MB megabytes in a decision, and
+     *             --alloc-penalty to make a bot over the allocation budget lose the game instead, and
+     *             --subprocess to run every bot in a JVM of its own, and
+     *             --bots DIR to also play the bots in the jars of DIR, which are looked for again before every iteration, and
+     *             --isolate to give every bot on the class path a class loader of its own, like the bots of DIR, and
+     *             --iterations N to play N tournament iterations instead of 5, and
+     *             --warmup N to warm every bot up with at most N rounds of untimed decisions before it plays, and
+     *             --log full|moves|off to choose what is written to the log of each game, and
+     *             --replays to record every game in the binary replay format, and
+     *             --seed S to make the placement of apples in all games reproducible, and
+     *             --board WxH to play on a board of W columns and H rows, and
+     *             --start0 X,Y and --start1 X,Y to place the heads of the snakes, and
+     *             --snake-size N to start with snakes of N segments, and
+     *             --free-for-all to play one game of all bots on one board per tournament iteration
      * @throws InterruptedException Threads handler
      * @throws IOException  FileWriter handler
      */
-    public static void main(String[] args) throws InterruptedException, IOException, NoSuchMethodException, InstantiationException, IllegalAccessException, InvocationTargetException {
-        if (args.length < 2) {
-            System.err.println("You must provide two classes implementing the Bot interface.");
+    public static void main(String[] args) throws InterruptedException, IOException, NoSuchMethodException, InstantiationException, IllegalAccessException, InvocationTargetException, ExecutionException {
+        ArrayList<String> botNames = new ArrayList<>();
+        int worker = 0; // number of this JVM if it is a worker of a tournament
+        int iterations = 5;
+        int warmup = 0; // most rounds of warm-up of every bot
+        try {
+            for (int i = 0; i < args.length; i++) {
+                int option = i;
+                if (args[i].equals("--headless"))
+                    headless = true;
+                else if (args[i].equals("--log") && i + 1 < args.length)
+                    GameLogger.setDefaultVerbosity(GameLogger.Verbosity.valueOf(args[++i].toUpperCase()));
+                else if (args[i].equals("--seed") && i + 1 < args.length)
+                    seeds = new Random(Long.parseLong(args[++i]));
+                else if (args[i].equals("--replays"))
+                    ReplayWriter.setEnabled(true);
+                else if (args[i].equals("--concurrent"))
+                    concurrent_decisions = true;
+                else if (args[i].equals("--cpu-time"))
+                    cpu_time = true;
+                else if (args[i].equals("--wall-cap") && i + 1 < args.length)
+                    wall_cap = Long.parseLong(args[++i]);
+                else if (args[i].equals("--alloc-budget") && i + 1 < args.length)
+                    alloc_budget = (long) (Double.parseDouble(args[++i]) * 1024 * 1024);
+                else if (args[i].equals("--alloc-penalty"))
+                    alloc_penalty = true;
+                else if (args[i].equals("--subprocess"))
+                    subprocess_bots = true;
+                else if (args[i].equals("--bots") && i + 1 < args.length)
+                    BotLoader.setBotDirectory(new File(args[++i]));
+                else if (args[i].equals("--isolate"))
+                    BotLoader.setIsolated(true);
+                else if (args[i].equals("--iterations") && i + 1 < args.length)
+                    iterations = Integer.parseInt(args[++i]);
+                else if (args[i].equals("--warmup") && i + 1 < args.length)
+                    warmup = Integer.parseInt(args[++i]);
+                else if (args[i].equals("--threads") && i + 1 < args.length)
+                    threads = Integer.parseInt(args[++i]);
+                else if (args[i].equals("--workers") && i + 1 < args.length)
+                    workers = Integer.parseInt(args[++i]);
+                else if (args[i].equals("--worker") && i + 1 < args.length)
+                    worker = Integer.parseInt(args[++i]);
+                else if (args[i].equals("--board") && i + 1 < args.length)
+                    maze_size = parse_coordinate(args[++i], "x");
+                else if (args[i].equals("--start0") && i + 1 < args.length)
+                    head0 = parse_coordinate(args[++i], ",");
+                else if (args[i].equals("--start1") && i + 1 < args.length)
+                    head1 = parse_coordinate(args[++i], ",");
+                else if (args[i].equals("--snake-size") && i + 1 < args.length)
+                    snake_size = Integer.parseInt(args[++i]);
+                else if (args[i].equals("--free-for-all"))
+                    free_for_all = true;
+                else
+                    botNames.add(args[i]);
+                if (GAME_OPTIONS.contains(args[option]))
+                    game_settings.addAll(Arrays.asList(args).subList(option, i + 1));
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("Bad option: " + e.getMessage());
             System.exit(1);
         }
+        String start = check_start();
+        if (start != null) {
+            System.err.println(start);
+            System.exit(1);
+        }
+        if (free_for_all && workers > 0) {
+            System.err.println("Free-for-all games cannot be played with --workers, use --threads instead");
+            System.exit(1);
+        }
+
+        if (cpu_time && !DecisionExecutor.enableCpuTime()) {
+            System.out.println("The CPU time of threads cannot be measured, the bots are charged for the time that passes");
+            cpu_time = false;
+        }
+        if (warmup > 0 && subprocess_bots)
+            System.out.println("The bots run in JVMs of their own, they are not warmed up");
+        else
+            WarmUp.setRounds(warmup);
+        WarmUp.setBoard(maze_size, start_heads(), snake_size);
+
+        if (worker > 0) {
+            TournamentWorker.serve(worker);
+            System.exit(0);
+        }
 
-        ArrayList<Class<? extends Bot>> bots = new ArrayList<>();
+        // the bots of the bot directory and of the class path, loaded in parallel;
+        // a bot named on the command line that is in a jar of the bot directory plays once, from its jar
+        ArrayList<Class<? extends Bot>> bots = new ArrayList<>(BotLoader.scan(null));
+        int jarBots = bots.size();
         BotLoader loader = new BotLoader();
+        for (Class<? extends Bot> bot : loader.getBotClasses(botNames)) {
+            if (bot != null && index_of(bots.subList(0, jarBots), bot.getName()) >= 0)
+                System.out.println("Bot " + bot.getName() + " is loaded from the bot directory, it plays once");
+            else
+                bots.add(bot);
+        }
+
+        if (bots.size() < 2) {
+            System.err.println("You must provide two classes implementing the Bot interface.");
+            System.exit(1);
+        }
+
+        start_tournament_n_times(iterations, bots);
+    }
+
+    /**
+     * @return time in millis a worker may take for a game before it is considered hung: the longest
+     *         game the step limit and the time limit of decisions allow, with {@link #WORKER_GAME_MARGIN}
+     */
+    private static long worker_game_timeout() {
+        long decision = (cpu_time ? Math.max(wall_cap, 1000) : 1000) + 100; // and the time a bot gets to stop when interrupted
+        return (long) SnakesHeadless.STEP_LIMIT_PER_GAME * 2 * decision + WORKER_GAME_MARGIN;
+    }
+
+    /**
+     * Parses a pair of numbers
+     * @param text two numbers separated by the separator, such as "14x14"
+     * @param separator separator of the numbers
+     * @return coordinate made of the numbers
+     */
+    private static Coordinate parse_coordinate(String text, String separator) {
+        String[] parts = text.split(separator);
+        if (parts.length != 2)
+            throw new IllegalArgumentException("Expected two numbers separated by '" + separator + "', got " + text);
+        return new Coordinate(Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()));
+    }
+
+    /**
+     * Places the heads of the snakes of a game between two bots: unless placed otherwise, the
+     * first snake starts near the bottom left corner with its tail down and the second one near
+     * the top right corner with its tail up, so that their tails are on the board
+     * @return heads of the first and the second snake
+     */
+    private static Coordinate[] start_heads() {
+        return new Coordinate[]{
+                head0 != null ? head0 : new Coordinate(2, snake_size - 1),
+                head1 != null ? head1 : new Coordinate(maze_size.x - 3, maze_size.y - snake_size)};
+    }
 
-        bots.add(loader.getBotClass(args[0]));
-        bots.add(loader.getBotClass(args[1]));
+    /**
+     * Checks that the snakes of the games fit on the board, as placed by {@link #start_heads()}
+     * or, in free-for-all games, along the bottom and the top of the board
+     * @return description of the problem, or null if the snakes fit
+     */
+    private static String check_start() {
+        if (maze_size.x < 1 || maze_size.y < 1)
+            return "Bad board size " + maze_size.x + "x" + maze_size.y;
+        if (snake_size < 1)
+            return "Bad snake size " + snake_size;
+        if (free_for_all)
+            return 2 * snake_size > maze_size.y ? "Snakes of " + snake_size + " segments do not fit on a board of " + maze_size.y + " rows" : null;
 
-        start_tournament_n_times(5, bots);
+        Coordinate[] heads = start_heads();
+        Direction[] tailDirections = {Direction.DOWN, Direction.UP};
+        HashSet<Coordinate> cells = new HashSet<>();
+        for (int i = 0; i < heads.length; i++) {
+            Coordinate segment = heads[i];
+            for (int k = 0; k < snake_size; k++) {
+                if (!segment.inBounds(maze_size))
+                    return "Snake " + i + " starting at " + heads[i] + " with " + snake_size + " segments does not fit on a board of "
+                            + maze_size.x + "x" + maze_size.y + ", its segment " + segment + " is outside the board";
+                if (!cells.add(segment))
+                    return "The snakes overlap at " + segment + " at the start";
+                segment = segment.moveTo(tailDirections[i]);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Creates a bot with the tournament settings, in a JVM of its own if --subprocess was given
+     * @param botClass class of the bot
+     * @return the bot
+     */
+    public static Bot createBot(Class<? extends Bot> botClass) throws NoSuchMethodException, IllegalAccessException, InvocationTargetException, InstantiationException {
+        if (!subprocess_bots)
+            return BotLoader.newBot(botClass);
+        try {
+            return new SubprocessBot(botClass);
+        } catch (IOException e) {
+            InstantiationException failure = new InstantiationException("Cannot start the JVM of " + botClass.getName());
+            failure.initCause(e);
+            throw failure;
+        }
+    }
+
+    /**
+     * Creates a game between two bots with the tournament settings, the snakes placed by {@link #start_heads()}
+     * @param bot0 first bot
+     * @param bot1 second bot
+     * @param seed seed of the random apple placement
+     * @return game ready to be played
+     */
+    public static SnakeGame createGame(Bot bot0, Bot bot1, long seed) {
+        // init game settings
+        Coordinate mazeSize = maze_size;
+        Coordinate[] heads = start_heads();
+        Coordinate head0 = heads[0];
+        Direction tailDirection0 = Direction.DOWN;
+        Coordinate head1 = heads[1];
+        Direction tailDirection1 = Direction.UP;
+        int snakeSize = snake_size;
+
+        SnakeGame game = new SnakeGame(mazeSize, head0, tailDirection0, head1, tailDirection1, snakeSize, bot0, bot1, seed);
+        game.concurrentDecisions = concurrent_decisions;
+        game.cpuTime = cpu_time;
+        game.wallClockCap = wall_cap;
+        game.allocationBudget = alloc_budget;
+        game.allocationPenalty = alloc_penalty;
+        return game;
+    }
+
+    /**
+     * Creates a game of any number of bots with the tournament settings.
+     * Half of the snakes start evenly spaced along the bottom of the board with their tails down,
+     * the others along the top with their tails up
+     * @param bots bots of the game
+     * @param seed seed of the random apple placement
+     * @return game ready to be played
+     */
+    public static SnakeGame createGame(Bot[] bots, long seed) {
+        if (bots.length == 2)
+            return createGame(bots[0], bots[1], seed);
+
+        Coordinate mazeSize = maze_size;
+        int n = bots.length;
+        int bottom = (n + 1) / 2; // snakes along the bottom
+        Coordinate[] heads = new Coordinate[n];
+        Direction[] tailDirections = new Direction[n];
+        for (int i = 0; i < n; i++) {
+            if (i < bottom) {
+                heads[i] = new Coordinate((i + 1) * mazeSize.x / (bottom + 1), snake_size - 1);
+                tailDirections[i] = Direction.DOWN;
+            } else {
+                int k = i - bottom;
+                heads[i] = new Coordinate(mazeSize.x - 1 - (k + 1) * mazeSize.x / (n - bottom + 1), mazeSize.y - snake_size);
+                tailDirections[i] = Direction.UP;
+            }
+        }
+
+        SnakeGame game = new SnakeGame(mazeSize, heads, tailDirections, snake_size, bots, seed);
+        game.concurrentDecisions = true;
+        game.cpuTime = cpu_time;
+        game.wallClockCap = wall_cap;
+        game.allocationBudget = alloc_budget;
+        game.allocationPenalty = alloc_penalty;
+        return game;
     }
 
     /**
@@ -42,44 +329,178 @@ public class SnakesUIMain {
      * @throws IOException FileWriter handler
      * @throws InterruptedException Threads handler
      */
-    public static void start_tournament_n_times(int n, ArrayList<Class<? extends Bot>> bots) throws IOException, InterruptedException, InvocationTargetException, NoSuchMethodException, InstantiationException, IllegalAccessException {
+    public static void start_tournament_n_times(int n, ArrayList<Class<? extends Bot>> bots) throws IOException, InterruptedException, InvocationTargetException, NoSuchMethodException, InstantiationException, IllegalAccessException, ExecutionException {
         total_results_table = new int[bots.size() + 1][bots.size() + 1];
         File dir = new File(LOG_DIRECTORY_PATH);
         if (!dir.exists() && !dir.mkdirs()) {
             System.err.println("Cannot create log directory.");
         }
+        total_latencies = new DecisionLatency[bots.size() + 1];
+        latency_fw = new FileWriter(new File(LOG_DIRECTORY_PATH, "latency.csv"), false);
+        latency_fw.write("game,bot," + DecisionLatency.CSV_HEADER + "\n");
+        ratings = Ratings.open(new File(LOG_DIRECTORY_PATH, "ratings.csv"));
+        GameScheduler scheduler = null;
+        if (workers > 0)
+            scheduler = new WorkerPool(workers, game_settings, worker_game_timeout());
+        else if (threads > 1)
+            scheduler = new TournamentScheduler(threads);
+        warm_up(bots);
         for (int i = 0; i < n; i++) {
+            if (i > 0)
+                refresh_bots(bots);
             System.out.println("\nTournament iteration number " + i + "\n");
             results_fw = new FileWriter(String.format("%s\\iteration_%d.txt", LOG_DIRECTORY_PATH, i), false);
-            start_round_robin_tournament(bots);
+            if (free_for_all)
+                start_free_for_all(bots);
+            else
+                start_round_robin_tournament(bots, scheduler);
             results_fw.close();
         }
+        if (scheduler != null)
+            scheduler.shutdown();
+        GameLogger.drain();
 
         results_fw = new FileWriter(String.format("%s\\total.txt", LOG_DIRECTORY_PATH), false);
-        for (int i = 0; i < bots.size(); i++)
+        for (int i = 0; !free_for_all && i < bots.size(); i++)
             for (int j = i + 1; j < bots.size(); j++) {
-                if (bots.get(i) == null || bots.get(j) == null) continue;
-                System.out.println("\n" + bots.get(i).getSimpleName() + " vs. " + bots.get(j).getSimpleName() + ": " + total_results_table[i][j] + " - " + total_results_table[j][i]);
-                results_fw.write(bots.get(i).getSimpleName() + " vs. " + bots.get(j).getSimpleName() + ": " + total_results_table[i][j] + " - " + total_results_table[j][i] + "\n");
+                if (name_of(bots, i) == null || name_of(bots, j) == null) continue;
+                System.out.println("\n" + name_of(bots, i) + " vs. " + name_of(bots, j) + ": " + total_results_table[i][j] + " - " + total_results_table[j][i]);
+                results_fw.write(name_of(bots, i) + " vs. " + name_of(bots, j) + ": " + total_results_table[i][j] + " - " + total_results_table[j][i] + "\n");
             }
+        for (int i = 0; free_for_all && i < bots.size(); i++) {
+            if (name_of(bots, i) == null) continue;
+            System.out.println("\n" + name_of(bots, i) + " earned in total: " + free_for_all_points[i]);
+            results_fw.write(name_of(bots, i) + " earned in total: " + free_for_all_points[i] + "\n");
+        }
+
+        System.out.println("\nDecision latencies:");
+        results_fw.write("\nDecision latencies:\n");
+        for (int i = 0; i < bots.size(); i++) {
+            if (name_of(bots, i) == null || total_latencies[i] == null) continue;
+            System.out.println(name_of(bots, i) + ": " + total_latencies[i]);
+            results_fw.write(name_of(bots, i) + ": " + total_latencies[i] + "\n");
+            latency_fw.write("total," + name_of(bots, i) + "," + total_latencies[i].toCsv() + "\n");
+        }
+        latency_fw.close();
+
+        ArrayList<String> over_budget = new ArrayList<>();
+        for (int i = 0; i < bots.size(); i++)
+            if (name_of(bots, i) != null && total_latencies[i] != null && total_latencies[i].overAllocationBudget > 0)
+                over_budget.add(name_of(bots, i) + " (" + total_latencies[i].overAllocationBudget + " decisions)");
+        if (!over_budget.isEmpty()) {
+            System.out.println("\nBots over the allocation budget of " + alloc_budget / 1024 + " KB per decision: " + String.join(", ", over_budget));
+            results_fw.write("\nBots over the allocation budget of " + alloc_budget / 1024 + " KB per decision: " + String.join(", ", over_budget) + "\n");
+        }
+
+        System.out.println("\nRatings after " + ratings.results() + " games:\n" + ratings.table());
+        results_fw.write("\nRatings after " + ratings.results() + " games:\n" + ratings.table());
+        ratings.close();
+
+        if (DecisionExecutor.getOrphanedThreadCount() > 0) {
+            System.out.println("\nOrphaned bot threads: " + DecisionExecutor.getOrphanedThreadCount() + ", quarantined bots: " + DecisionExecutor.getQuarantinedBots());
+            results_fw.write("\nOrphaned bot threads: " + DecisionExecutor.getOrphanedThreadCount() + ", quarantined bots: " + DecisionExecutor.getQuarantinedBots() + "\n");
+        }
         results_fw.close();
     }
 
+    /**
+     * Add the bots dropped into the bot directory since the last iteration, and retire the bots
+     * whose jars were removed or replaced, and the quarantined bots of the directory.
+     * Retired bots keep their number, so their results stay in the totals
+     * @param bots Competitive bots, the retired ones replaced by null
+     * @throws InterruptedException Threads handler
+     */
+    private static void refresh_bots(ArrayList<Class<? extends Bot>> bots) throws InterruptedException {
+        if (!BotLoader.hasBotDirectory())
+            return;
+        ArrayList<Class<? extends Bot>> retired = new ArrayList<>();
+        for (Class<? extends Bot> bot : bots)
+            if (bot != null && bot.getClassLoader() instanceof BotClassLoader && DecisionExecutor.isQuarantined(bot)) {
+                BotLoader.retire(bot);
+                retired.add(bot);
+            }
+        List<Class<? extends Bot>> added = BotLoader.scan(retired);
+
+        for (Class<? extends Bot> bot : retired) {
+            int i = bots.indexOf(bot);
+            if (i < 0)
+                continue;
+            retired_bots.put(i, bot.getSimpleName());
+            bots.set(i, null);
+            System.out.println("Retired bot: " + bot.getName());
+        }
+        // the dummy player of an odd number of bots goes last
+        if (!added.isEmpty() && bots.get(bots.size() - 1) == null && !retired_bots.containsKey(bots.size() - 1))
+            bots.remove(bots.size() - 1);
+        for (Iterator<Class<? extends Bot>> it = added.iterator(); it.hasNext(); ) {
+            Class<? extends Bot> bot = it.next();
+            if (index_of(bots, bot.getName()) >= 0) {
+                System.out.println("Bot " + bot.getName() + " is already playing, its jar is ignored");
+                BotLoader.retire(bot);
+                it.remove();
+                continue;
+            }
+            bots.add(bot);
+            System.out.println("New bot: " + bot.getName());
+        }
+        warm_up(added);
+
+        // make room for the new bots in the totals
+        int size = bots.size() + 1;
+        if (total_results_table.length < size) {
+            int[][] table = new int[size][size];
+            for (int i = 0; i < total_results_table.length; i++)
+                System.arraycopy(total_results_table[i], 0, table[i], 0, total_results_table[i].length);
+            total_results_table = table;
+            total_latencies = Arrays.copyOf(total_latencies, size);
+        }
+        if (free_for_all_points != null && free_for_all_points.length < bots.size())
+            free_for_all_points = Arrays.copyOf(free_for_all_points, bots.size());
+    }
+
+    /**
+     * @param bots Competitive bots, null for the dummy player and the retired bots
+     * @param name binary name of a bot class
+     * @return position of the bot of that name, -1 if there is none
+     */
+    private static int index_of(List<Class<? extends Bot>> bots, String name) {
+        for (int i = 0; i < bots.size(); i++)
+            if (bots.get(i) != null && bots.get(i).getName().equals(name))
+                return i;
+        return -1;
+    }
+
+    /**
+     * Warm the bots up before their first game, see {@link WarmUp}. Worker JVMs warm up
+     * the bots themselves, when they load them
+     * @param bots Competitive bots, null for the dummy player and the retired bots
+     * @throws InterruptedException Threads handler
+     */
+    private static void warm_up(List<Class<? extends Bot>> bots) throws InterruptedException {
+        if (!WarmUp.isEnabled() || workers > 0)
+            return;
+        for (Class<? extends Bot> bot : bots)
+            if (bot != null)
+                WarmUp.warm(bot);
+    }
+
+    /**
+     * @param bots Competitive bots
+     * @param i number of a bot
+     * @return simple name of the bot, even if it was retired, or null for the dummy player
+     */
+    private static String name_of(ArrayList<Class<? extends Bot>> bots, int i) {
+        return bots.get(i) != null ? bots.get(i).getSimpleName() : retired_bots.get(i);
+    }
+
     /**
      * Start tournament between bots
      * @param bots Competitive bots
+     * @param scheduler Scheduler to play the games in parallel, in threads or worker JVMs, or null to play them one after another
      * @throws InterruptedException Threads handler
      * @throws IOException FileWriter handler
      */
-    public static void start_round_robin_tournament(ArrayList<Class<? extends Bot>> bots) throws InterruptedException, IOException, NoSuchMethodException, IllegalAccessException, InvocationTargetException, InstantiationException {
-        // init game settings
-        Coordinate mazeSize = new Coordinate(14, 14);
-        Coordinate head0 = new Coordinate(2, 2);
-        Direction tailDirection0 = Direction.DOWN;
-        Coordinate head1 = new Coordinate(11, 11);
-        Direction tailDirection1 = Direction.UP;
-        int snakeSize = 3;
-
+    public static void start_round_robin_tournament(ArrayList<Class<? extends Bot>> bots, GameScheduler scheduler) throws InterruptedException, IOException, NoSuchMethodException, IllegalAccessException, InvocationTargetException, InstantiationException, ExecutionException {
         // a number associated to each player in bots ArrayList
         ArrayList<Integer> playerNumber = new ArrayList<>();
 
@@ -95,38 +516,21 @@ public class SnakesUIMain {
         for (int i = 0; i < bots.size(); i++) {
             playerNumber.add(i);
             points.add(0);
-            if (bots.get(i) != null)
-                bots_names.add(bots.get(i).getSimpleName());
+            bots_names.add(bots.get(i) != null ? bots.get(i).getSimpleName() : null);
         }
 
+        // games of all rounds, in the order they are reported
+        ArrayList<Pairing> schedule = new ArrayList<>();
+
         for (int k = 0; k < bots.size() - 1; k++) {
             // play N / 2 rounds
             for (int i = 0; i < bots.size() / 2; i++) {
-                // start the game between ith and N-i-1 bots
-                Bot bot0 = bots.get(i).getConstructor().newInstance();
-                Bot bot1 = bots.get(bots.size() - i - 1).getConstructor().newInstance();
-                SnakeGame game = new SnakeGame(mazeSize, head0, tailDirection0, head1, tailDirection1, snakeSize, bot0, bot1);
-                SnakesWindow window = new SnakesWindow(game);
-                Thread t = new Thread(window);
-                t.start();
-                t.join();
-
-                Thread.sleep(1000); // to allow users see the result
-                window.closeWindow();
-
-                float time_taken = (float)(System.currentTimeMillis() - game.startTime) / 1000;
-                results_fw.write(game.name0 + " vs " + game.name1 + " : " + game.gameResult + "");
-                results_fw.write(" (Time taken: " + time_taken + ")\n");
-                System.out.print(game.name0 + " vs " + game.name1 + " : " + game.gameResult);
-                System.out.println(" (Time taken: " + time_taken + ")");
-
-                // add the result of the game to total points
-                points.set(playerNumber.get(i), points.get(playerNumber.get(i)) + Integer.parseInt(game.gameResult.substring(0, 1)));
-                points.set(playerNumber.get(bots.size() - i - 1), points.get(playerNumber.get(bots.size() - i - 1)) + Integer.parseInt(game.gameResult.substring(game.gameResult.length() - 1)));
-
-                // add to the total results table
-                total_results_table[playerNumber.get(i)][playerNumber.get(bots.size() - i - 1)] +=  Integer.parseInt(game.gameResult.substring(0, 1));
-                total_results_table[playerNumber.get(bots.size() - i - 1)][playerNumber.get(i)] += Integer.parseInt(game.gameResult.substring(game.gameResult.length() - 1));
+                // the game between ith and N-i-1 bots, unless one of them is the dummy player
+                int j = bots.size() - i - 1;
+                if (bots.get(i) == null || bots.get(j) == null) continue;
+                Pairing pairing = new Pairing(playerNumber.get(i), bots.get(i), playerNumber.get(j), bots.get(j), seeds.nextLong());
+                pairing.order = scheduled_games++;
+                schedule.add(pairing);
             }
 
             // shuffle players in special way
@@ -147,6 +551,15 @@ public class SnakesUIMain {
             playerNumber.set(1, buffer_player_number);
         }
 
+        if (scheduler != null) {
+            // results are merged in the order of the schedule, whichever game finishes first
+            for (Future<Pairing> result : scheduler.submit(schedule))
+                record_result(result.get(), points);
+        } else {
+            for (Pairing pairing : schedule)
+                record_result(play_game(pairing), points);
+        }
+
         results_fw.write("\n-------------------------------------------\n\n");
         // get and print the results
         for (int i = 0; i < bots.size(); i++) {
@@ -155,5 +568,136 @@ public class SnakesUIMain {
             results_fw.write(bots_names.get(playerNumber.get(i)) + " earned: " + points.get(playerNumber.get(i)).toString() + "\n");
         }
     }
-}
 
+    /**
+     * Play one game of all bots on one board
+     * @param bots Competitive bots; bots that failed to load sit the game out
+     * @throws InterruptedException Threads handler
+     * @throws IOException FileWriter handler
+     */
+    public static void start_free_for_all(ArrayList<Class<? extends Bot>> bots) throws InterruptedException, IOException, NoSuchMethodException, IllegalAccessException, InvocationTargetException, InstantiationException {
+        if (free_for_all_points == null)
+            free_for_all_points = new int[bots.size()];
+
+        ArrayList<Integer> players = new ArrayList<>();
+        for (int i = 0; i < bots.size(); i++)
+            if (bots.get(i) != null && !DecisionExecutor.isQuarantined(bots.get(i)))
+                players.add(i);
+        if (players.size() < 2) {
+            System.out.println("Not enough bots left for a game");
+            return;
+        }
+
+        Bot[] instances = new Bot[players.size()];
+        for (int k = 0; k < instances.length; k++)
+            instances[k] = createBot(bots.get(players.get(k)));
+        long seed = seeds.nextLong();
+        SnakeGame game = createGame(instances, seed);
+        if (headless) {
+            new SnakesHeadless(game).run();
+        } else {
+            SnakesWindow window = new SnakesWindow(game);
+            Thread t = new Thread(window);
+            t.start();
+            t.join();
+
+            Thread.sleep(1000); // to allow users see the result
+            window.closeWindow();
+        }
+
+        float time_taken = (float) (System.currentTimeMillis() - game.startTime) / 1000;
+        String names = String.join(" vs ", game.names);
+        results_fw.write(names + " : " + game.gameResult + " (Time taken: " + time_taken + ", seed: " + seed + ")\n");
+        System.out.println(names + " : " + game.gameResult + " (Time taken: " + time_taken + ", seed: " + seed + ")");
+
+        results_fw.write("\n-------------------------------------------\n\n");
+        for (int k = 0; k < instances.length; k++) {
+            free_for_all_points[players.get(k)] += game.points[k];
+            System.out.println(game.names[k] + " earned: " + game.points[k]);
+            results_fw.write(game.names[k] + " earned: " + game.points[k] + "\n");
+        }
+        for (int k = 0; k < instances.length; k++)
+            record_latency(game.id, players.get(k), game.names[k], game.latencies[k]);
+
+        String[] versions = new String[instances.length];
+        for (int k = 0; k < instances.length; k++)
+            versions[k] = ratings.versionId(bots.get(players.get(k)));
+        ratings.record(versions, game.points);
+    }
+
+    /**
+     * Play the game of one pairing on the current thread
+     * @param pairing Pairing to play
+     * @return the pairing with its outcome recorded
+     * @throws InterruptedException Threads handler
+     */
+    private static Pairing play_game(Pairing pairing) throws InterruptedException, NoSuchMethodException, IllegalAccessException, InvocationTargetException, InstantiationException {
+        if (pairing.isForfeit()) {
+            pairing.recordForfeit();
+            return pairing;
+        }
+        Bot bot0 = createBot(pairing.bot0);
+        Bot bot1 = createBot(pairing.bot1);
+        SnakeGame game = createGame(bot0, bot1, pairing.seed);
+        if (headless) {
+            new SnakesHeadless(game).run();
+        } else {
+            SnakesWindow window = new SnakesWindow(game);
+            Thread t = new Thread(window);
+            t.start();
+            t.join();
+
+            Thread.sleep(1000); // to allow users see the result
+            window.closeWindow();
+        }
+        pairing.record(game);
+        return pairing;
+    }
+
+    /**
+     * Report the outcome of a game and add it to the points and the total results table
+     * @param pairing Played pairing
+     * @param points Points earned by each player
+     * @throws IOException FileWriter handler
+     */
+    private static void record_result(Pairing pairing, ArrayList<Integer> points) throws IOException {
+        // the games before this one are over, so it is known now whether it is forfeited
+        if (pairing.gameId != null && pairing.isForfeit())
+            pairing.recordForfeit();
+        results_fw.write(pairing.name0 + " vs " + pairing.name1 + " : " + pairing.gameResult + "");
+        results_fw.write(" (Time taken: " + pairing.timeTaken + ", seed: " + pairing.seed + ")\n");
+        System.out.print(pairing.name0 + " vs " + pairing.name1 + " : " + pairing.gameResult);
+        System.out.println(" (Time taken: " + pairing.timeTaken + ", seed: " + pairing.seed + ")");
+        if (pairing.gameId != null) {
+            record_latency(pairing.gameId, pairing.playerNumber0, pairing.name0, pairing.latency0);
+            record_latency(pairing.gameId, pairing.playerNumber1, pairing.name1, pairing.latency1);
+            // forfeits are not rated, the game was not played
+            ratings.record(new String[]{ratings.versionId(pairing.bot0), ratings.versionId(pairing.bot1)},
+                    new int[]{pairing.points0(), pairing.points1()});
+        }
+
+        // add the result of the game to total points
+        points.set(pairing.playerNumber0, points.get(pairing.playerNumber0) + pairing.points0());
+        points.set(pairing.playerNumber1, points.get(pairing.playerNumber1) + pairing.points1());
+
+        // add to the total results table
+        total_results_table[pairing.playerNumber0][pairing.playerNumber1] += pairing.points0();
+        total_results_table[pairing.playerNumber1][pairing.playerNumber0] += pairing.points1();
+    }
+
+    /**
+     * Report the decision latencies of a bot in a game and add them to the bot's totals
+     * @param game Id of the game
+     * @param player Tournament number of the bot
+     * @param name Name of the bot
+     * @param latency Decision latencies of the bot in the game
+     * @throws IOException FileWriter handler
+     */
+    private static void record_latency(String game, int player, String name, DecisionLatency latency) throws IOException {
+        results_fw.write("    " + name + " decisions: " + latency + "\n");
+        latency_fw.write(game + "," + name + "," + latency.toCsv() + "\n");
+        if (total_latencies[player] == null)
+            total_latencies[player] = new DecisionLatency(latency.budgetNanos);
+        total_latencies[player].add(latency);
+    }
+}
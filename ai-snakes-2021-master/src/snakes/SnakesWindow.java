@@ -11,8 +11,9 @@ public class SnakesWindow implements Runnable {
     private JFrame frame;
     private SnakeCanvas canvas;
     private SnakeGame game;
-    private final static int TIME_LIMIT_PER_GAME = 3 * 60 * 1000; // time limit in mills
+    final static int TIME_LIMIT_PER_GAME = 3 * 60 * 1000; // time limit in mills
     private final static int TIME_LIMIT_PER_STEP = 1000; // time limit for one step in mills
+    final static int MIN_TIME_PER_STEP = 200; // minimal duration of one step in mills
 
     private boolean running = false;
 
@@ -64,34 +65,36 @@ public class SnakesWindow implements Runnable {
         running = true;
         canvas.repaint();
         long startTime = System.currentTimeMillis();
-        while(running) {
-            long t = System.currentTimeMillis();
-
-            try {
-                running = game.runOneStep();
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-            }
-            canvas.repaint();
-
-            long elapsed = System.currentTimeMillis() - t;
-
-            try {
-                Thread.sleep(Math.max(200 - elapsed, 0));
-            } catch (InterruptedException e) {
-                if (game.gameResult != null)
-                    game.gameResult = "interrupted";
-                break;
-            }
-
-            // check for time limit
-            if (System.currentTimeMillis() - startTime >= TIME_LIMIT_PER_GAME) {
-                int snake0_size = game.snake0.body.size();
-                int snake1_size = game.snake1.body.size();
-                game.gameResult = (snake0_size > snake1_size ? 1 : 0) + " - " + (snake1_size > snake0_size ? 1 : 0);
-                running = false;
-                System.out.println("Round time left (" + (TIME_LIMIT_PER_GAME / 1000) + "seconds) \n");
+        try {
+            while(running) {
+                long t = System.currentTimeMillis();
+
+                try {
+                    running = game.runOneStep();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                canvas.repaint();
+
+                long elapsed = System.currentTimeMillis() - t;
+
+                try {
+                    Thread.sleep(Math.max(MIN_TIME_PER_STEP - elapsed, 0));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+
+                // check for time limit
+                if (System.currentTimeMillis() - startTime >= TIME_LIMIT_PER_GAME) {
+                    game.finishByLimit();
+                    running = false;
+                    System.out.println("Round time left (" + (TIME_LIMIT_PER_GAME / 1000) + "seconds) \n");
+                }
             }
+        } finally {
+            game.abandon(); // an interrupted game releases its bots and its log as well
         }
 
         //JOptionPane.showMessageDialog(null, game.gameResult, "Game results", JOptionPane.INFORMATION_MESSAGE);
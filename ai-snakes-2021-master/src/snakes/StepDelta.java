@@ -0,0 +1,84 @@
+package snakes;
+
+import java.util.Arrays;
+
+/**
+ * This class implements the changes of one game step, as handed to a {@link StepListener}.
+ * <p>
+ * Cells are numbered {@code y * mazeSize.x + x}, like in {@link GameView}. The game reuses
+ * one delta for all steps and all bots, so a listener must not keep it beyond its call
+ */
+public final class StepDelta {
+    public final int snakes; // number of snakes at the start of the game
+
+    int step = 0;
+    final int[] heads;        // cell each head entered, -1 if it did not move
+    final int[] tails;        // cell each tail left, -1 if the snake grew
+    final int[] eliminatedAt; // step in which each snake was removed from the board
+    int apple;
+    boolean appleMoved;
+    int appleTTL;
+
+    /**
+     * @param snakes number of snakes at the start of the game
+     */
+    StepDelta(int snakes) {
+        this.snakes = snakes;
+        this.heads = new int[snakes];
+        this.tails = new int[snakes];
+        this.eliminatedAt = new int[snakes];
+        Arrays.fill(eliminatedAt, -1);
+    }
+
+    /**
+     * @return number of the step, counting from 1
+     */
+    public int step() {
+        return step;
+    }
+
+    /**
+     * @param snake number of a snake
+     * @return cell its head entered, or -1 if it is off the board or its move was fatal
+     */
+    public int head(int snake) {
+        return heads[snake];
+    }
+
+    /**
+     * @param snake number of a snake
+     * @return cell its tail left, or -1 if it kept its tail because it ate the apple, or is off the board
+     */
+    public int tail(int snake) {
+        return tails[snake];
+    }
+
+    /**
+     * @param snake number of a snake
+     * @return True - if the snake was removed from the board in this step, because it ran out of time or collided
+     */
+    public boolean eliminated(int snake) {
+        return eliminatedAt[snake] == step;
+    }
+
+    /**
+     * @return cell of the apple after the step
+     */
+    public int apple() {
+        return apple;
+    }
+
+    /**
+     * @return True - if the apple was placed anew, which may be on the same cell
+     */
+    public boolean appleMoved() {
+        return appleMoved;
+    }
+
+    /**
+     * @return number of decisions, the next one included, before the apple moves to another cell unless it is eaten
+     */
+    public int appleTTL() {
+        return appleTTL;
+    }
+}
@@ -0,0 +1,15 @@
+package snakes;
+
+/**
+ * This interface may be implemented by a {@link Bot} that keeps its own picture of the game,
+ * to update it with the changes of every step instead of rebuilding it for every decision
+ */
+public interface StepListener {
+    /**
+     * Called after every step that the game goes on from, before the next decision is asked for
+     * and on the same thread as the decisions, so a bot needs no synchronisation
+     *
+     * @param delta changes of the step, only valid during the call
+     */
+    void stepped(StepDelta delta);
+}
@@ -0,0 +1,381 @@
+package snakes;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Implements a bot that runs another bot in a JVM of its own, so its allocations, its garbage
+ * collections and a thread that does not stop cannot slow down the game or other bots.
+ * <p>
+ * The JVM is started with the bot and kept until the game ends, when the game closes the bot.
+ * For every decision the bot sends a frame of the board over the standard input of the JVM and
+ * reads the direction, and the time the bot took for it, from its standard output; everything
+ * the bot prints goes to the standard error. Frames are made of ints, cells being numbered
+ * {@code y * width + x}:
+ * <pre>
+ *   request: full, step, width, height, you, snakes, apple, appleTTL, then for every snake
+ *            its length (0 if it is off the board) followed by
+ *            the cells of its segments from the head, if full is 1, or the cell of its head
+ *   reply:   direction ordinal as a byte (-1 if the bot threw an exception, followed by the message),
+ *            then the time the bot took as a long, in nanoseconds
+ * </pre>
+ * The first frame of a game is full; later ones only carry the heads, from which the JVM of the
+ * bot replays the moves on its own copy of the board. The bot there is handed a {@link GameView}
+ * of that copy, or the snakes on it, and a {@link StepDelta}, so it decides exactly as it would in the game.
+ * <p>
+ * The difference between the round trip and the time the bot took is the overhead of running
+ * it in its own JVM, which is reported when the game ends
+ */
+public class SubprocessBot implements ViewBot, AutoCloseable {
+    private static final long SPIN_NANOS = TimeUnit.MICROSECONDS.toNanos(5); // time spent spinning on a reply before blocking
+    private static final long EXIT_TIMEOUT = 1; // time the JVM gets to exit after the game in seconds
+
+    public final Class<? extends Bot> botClass;
+    private final Process process;
+    private final DataOutputStream out;
+    private final DataInputStream in;
+    private int lastStep = -2; // step of the last frame sent
+    private volatile boolean aborted = false; // the game gave up on a decision and stopped the JVM
+
+    // timing of the decisions, to tell the bot's time from the overhead
+    public long decisions = 0;
+    public long botNanos = 0;       // time the bot took, measured in its JVM
+    public long roundTripNanos = 0; // time from sending the frame to reading the reply
+    public long lastBotNanos = 0;   // time the bot took for the last decision, measured in its JVM
+
+    /**
+     * Starts the JVM of a bot with the class path of this one, and the jar of the bot if it comes
+     * from the bot directory, see {@link BotLoader}
+     *
+     * @param botClass class of the bot to run
+     * @throws IOException if the JVM cannot be started
+     */
+    public SubprocessBot(Class<? extends Bot> botClass) throws IOException {
+        this.botClass = botClass;
+        StringBuilder classPath = new StringBuilder(System.getProperty("java.class.path"));
+        if (botClass.getClassLoader() instanceof BotClassLoader) {
+            try {
+                for (URL url : ((BotClassLoader) botClass.getClassLoader()).getURLs())
+                    classPath.append(File.pathSeparator).append(new File(url.toURI()));
+            } catch (URISyntaxException e) {
+                throw new IOException(e);
+            }
+        }
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.add("-cp");
+        command.add(classPath.toString());
+        command.add(SubprocessBot.class.getName());
+        command.add(botClass.getName());
+        this.process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        this.out = new DataOutputStream(new BufferedOutputStream(process.getOutputStream(), 1 << 14));
+        this.in = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+    }
+
+    @Override
+    public Direction chooseDirection(GameView view) {
+        long start = System.nanoTime();
+        try {
+            writeFrame(view);
+            awaitReply();
+            int direction = in.readByte();
+            String exception = direction < 0 ? in.readUTF() : null;
+            lastBotNanos = in.readLong();
+            botNanos += lastBotNanos;
+            roundTripNanos += System.nanoTime() - start;
+            decisions++;
+            if (exception != null)
+                throw new IllegalStateException(botClass.getSimpleName() + " threw an exception: " + exception);
+            return Direction.values()[direction];
+        } catch (IOException e) {
+            if (aborted)
+                throw new IllegalStateException("The JVM of " + botClass.getSimpleName() + " was stopped, out of time");
+            throw new IllegalStateException("The JVM of " + botClass.getSimpleName() + " failed", e);
+        }
+    }
+
+    /**
+     * Sends the board to the JVM, in full unless it has seen the previous step
+     *
+     * @param view the board as seen by the bot
+     * @throws IOException if the JVM cannot be written to
+     */
+    private void writeFrame(GameView view) throws IOException {
+        boolean full = view.step() != lastStep + 1;
+        lastStep = view.step();
+        out.writeInt(full ? 1 : 0);
+        out.writeInt(view.step());
+        out.writeInt(view.mazeSize.x);
+        out.writeInt(view.mazeSize.y);
+        out.writeInt(view.you);
+        out.writeInt(view.snakes);
+        out.writeInt(view.apple());
+        out.writeInt(view.appleTTL());
+        for (int i = 0; i < view.snakes; i++) {
+            if (!view.onBoard(i)) {
+                out.writeInt(0);
+                continue;
+            }
+            int length = view.length(i);
+            out.writeInt(length);
+            if (full) {
+                Snake snake = view.snake(i);
+                for (int j = 0; j < length; j++)
+                    out.writeInt(snake.cellAt(j));
+            } else {
+                out.writeInt(view.head(i));
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Spins for a few microseconds in case the reply is already on its way, as most bots answer
+     * quickly; then the reply is read blocking, so a thinking bot gets the CPU. Reading is not
+     * interruptible: when the game gives up on the decision it stops the JVM, see {@link #abort()},
+     * which ends the read
+     *
+     * @throws IOException if the input of the JVM cannot be read
+     */
+    private void awaitReply() throws IOException {
+        long spinUntil = System.nanoTime() + SPIN_NANOS;
+        while (in.available() == 0 && System.nanoTime() < spinUntil)
+            ;
+    }
+
+    /**
+     * Stops the JVM because the game gave up on the decision, whose reply would otherwise arrive
+     * in the middle of the next frame. The decision waiting for the reply fails, and so do the
+     * later ones
+     */
+    void abort() {
+        aborted = true;
+        process.destroyForcibly();
+    }
+
+    /**
+     * Stops the JVM of the bot, and reports the overhead of running it there
+     */
+    @Override
+    public synchronized void close() {
+        if (!process.isAlive())
+            return;
+        try {
+            out.close(); // the JVM exits once its input ends
+            if (!process.waitFor(EXIT_TIMEOUT, TimeUnit.SECONDS))
+                process.destroyForcibly();
+        } catch (IOException | InterruptedException e) {
+            process.destroyForcibly();
+        }
+        if (decisions > 0)
+            System.out.println(botClass.getSimpleName() + " in its own JVM: " + decisions + " decisions, "
+                    + (roundTripNanos - botNanos) / decisions / 1000 + " us overhead per decision");
+    }
+
+    /**
+     * The copy of the board in the JVM of the bot, kept up to date from the frames the way
+     * {@link SnakeGame} keeps its own
+     */
+    private static class Replica {
+        final Coordinate mazeSize;
+        final Snake[] snakes;
+        final boolean[] onBoard;
+        final OccupancyGrid occupancy;
+        final GameView.Board board;
+        final GameView view;
+        final StepDelta delta;
+        int appleTTL;
+
+        /**
+         * Reads the snakes of a full frame
+         *
+         * @param in     standard input of the JVM, after the header of the frame
+         * @param step   number of steps played so far
+         * @param width  width of the board
+         * @param height height of the board
+         * @param you    number of the bot's snake
+         * @param n      number of snakes at the start of the game
+         * @throws IOException if the input breaks
+         */
+        Replica(DataInputStream in, int step, int width, int height, int you, int n) throws IOException {
+            mazeSize = new Coordinate(width, height);
+            snakes = new Snake[n];
+            onBoard = new boolean[n];
+            occupancy = new OccupancyGrid(mazeSize);
+            int[] segments = new int[0];
+            for (int i = 0; i < n; i++) {
+                int length = in.readInt();
+                if (segments.length < length)
+                    segments = new int[length];
+                for (int j = 0; j < length; j++)
+                    segments[j] = in.readInt();
+                snakes[i] = new Snake(segments, length, mazeSize);
+                onBoard[i] = length > 0;
+                occupancy.occupy(snakes[i]);
+            }
+            board = new GameView.Board(mazeSize, snakes, onBoard, occupancy.counts());
+            board.step = step;
+            for (int i = 0; i < n; i++) {
+                Snake snake = snakes[i];
+                for (int age = 0; age < snake.body.size(); age++)
+                    board.entered[i][snake.cellAt(age)] = step - age;
+            }
+            updateOpponents();
+            view = new GameView(board, you);
+            delta = new StepDelta(n);
+        }
+
+        /**
+         * Replays the moves of one step from the heads of a frame
+         *
+         * @param in standard input of the JVM, after the header of the frame
+         * @throws IOException if the input breaks, or the heads do not follow from the last frame
+         */
+        void step(DataInputStream in) throws IOException {
+            board.step();
+            delta.step = board.step;
+            boolean eliminated = false;
+            for (int i = 0; i < snakes.length; i++) {
+                delta.heads[i] = -1;
+                delta.tails[i] = -1;
+                int length = in.readInt();
+                if (!onBoard[i])
+                    continue;
+                Snake snake = snakes[i];
+                if (length == 0) {
+                    onBoard[i] = false;
+                    occupancy.release(snake);
+                    delta.eliminatedAt[i] = board.step;
+                    eliminated = true;
+                    continue;
+                }
+
+                int head = in.readInt();
+                Coordinate oldHead = snake.getHead();
+                Coordinate oldTail = snake.body.getLast();
+                int oldSize = snake.body.size();
+                boolean grow = length > oldSize;
+                if (!snake.moveTo(direction(oldHead, head), grow) || snake.body.size() != length)
+                    throw new IOException("Snake " + i + " cannot reach cell " + head + " in step " + board.step);
+                occupancy.update(snake, oldHead, oldTail, oldSize);
+                board.moved(i, true);
+                delta.heads[i] = head;
+                if (!grow)
+                    delta.tails[i] = oldTail.y * mazeSize.x + oldTail.x;
+            }
+            if (eliminated)
+                updateOpponents();
+        }
+
+        /**
+         * Places the apple of a frame. Unless it is placed anew, its time to live is one less
+         * than in the last frame
+         *
+         * @param apple    cell of the apple
+         * @param appleTTL decisions left before the apple moves to another cell
+         */
+        void apple(int apple, int appleTTL) {
+            board.apple(Coordinate.of(apple % mazeSize.x, apple / mazeSize.x), appleTTL);
+            delta.apple = apple;
+            delta.appleMoved = appleTTL >= this.appleTTL;
+            delta.appleTTL = appleTTL;
+            this.appleTTL = appleTTL;
+        }
+
+        /**
+         * @param from a cell
+         * @param to   a neighbour of the cell
+         * @return direction leading from the cell to its neighbour
+         * @throws IOException if the cells are not neighbours
+         */
+        private Direction direction(Coordinate from, int to) throws IOException {
+            for (Direction d : Direction.values()) {
+                int x = from.x + d.dx, y = from.y + d.dy;
+                if (x >= 0 && x < mazeSize.x && y * mazeSize.x + x == to)
+                    return d;
+            }
+            throw new IOException("Cell " + to + " is not next to " + from);
+        }
+
+        /**
+         * Lists the snakes on the board besides each snake, like the game does
+         */
+        private void updateOpponents() {
+            int left = 0;
+            for (boolean b : onBoard)
+                if (b)
+                    left++;
+            for (int i = 0; i < snakes.length; i++) {
+                if (!onBoard[i])
+                    continue;
+                Snake[] opponents = new Snake[left - 1];
+                int k = 0;
+                for (int j = 0; j < snakes.length; j++)
+                    if (j != i && onBoard[j])
+                        opponents[k++] = snakes[j];
+                board.opponents[i] = opponents;
+            }
+        }
+    }
+
+    /**
+     * Runs a bot in this JVM for a {@link SubprocessBot}, until its input ends
+     *
+     * @param args binary name of the bot class
+     * @throws Exception if the bot cannot be created or the pipes break
+     */
+    public static void main(String[] args) throws Exception {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out)));
+        DataInputStream in = new DataInputStream(new BufferedInputStream(System.in, 1 << 14));
+        System.setOut(System.err);
+        Bot bot = Class.forName(args[0]).asSubclass(Bot.class).getConstructor().newInstance();
+
+        Replica replica = null;
+        while (true) {
+            boolean full;
+            try {
+                full = in.readInt() != 0;
+            } catch (EOFException e) {
+                return; // the game is over
+            }
+            int step = in.readInt();
+            int width = in.readInt();
+            int height = in.readInt();
+            int you = in.readInt();
+            int n = in.readInt();
+            int apple = in.readInt();
+            int appleTTL = in.readInt();
+
+            if (full)
+                replica = new Replica(in, step, width, height, you, n);
+            else
+                replica.step(in);
+            replica.apple(apple, appleTTL);
+
+            long start = System.nanoTime();
+            try {
+                if (!full && bot instanceof StepListener)
+                    ((StepListener) bot).stepped(replica.delta);
+                out.writeByte(SnakesRunner.decide(bot, replica.view).ordinal());
+            } catch (Exception e) {
+                e.printStackTrace();
+                out.writeByte(-1);
+                out.writeUTF(String.valueOf(e));
+            }
+            out.writeLong(System.nanoTime() - start);
+            out.flush();
+        }
+    }
+}
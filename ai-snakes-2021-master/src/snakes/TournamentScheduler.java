@@ -0,0 +1,74 @@
+package snakes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Plays independent tournament games on a pool of worker threads.
+ * Games are played headless; their results are handed out in the order
+ * the pairings were scheduled, so they do not depend on scheduling
+ */
+public class TournamentScheduler implements GameScheduler {
+    private final ExecutorService pool;
+
+    /**
+     * Creates the scheduler
+     * @param threads number of games played at the same time
+     */
+    public TournamentScheduler(int threads) {
+        final AtomicInteger count = new AtomicInteger();
+        pool = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "tournament-worker-" + count.getAndIncrement());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    @Override
+    public List<Future<Pairing>> submit(List<Pairing> schedule) {
+        List<Future<Pairing>> results = new ArrayList<>(schedule.size());
+        for (final Pairing pairing : schedule)
+            results.add(pool.submit(new Callable<Pairing>() {
+                @Override
+                public Pairing call() throws Exception {
+                    return play(pairing);
+                }
+            }));
+        return results;
+    }
+
+    /**
+     * Plays the game of one pairing on the calling thread
+     * @param pairing pairing to play
+     * @return the pairing with its outcome recorded
+     */
+    public static Pairing play(Pairing pairing) throws ReflectiveOperationException {
+        if (pairing.isForfeit()) {
+            pairing.recordForfeit();
+            return pairing;
+        }
+        Bot bot0 = SnakesUIMain.createBot(pairing.bot0);
+        Bot bot1 = SnakesUIMain.createBot(pairing.bot1);
+        SnakeGame game = SnakesUIMain.createGame(bot0, bot1, pairing.seed);
+        new SnakesHeadless(game).run();
+        pairing.record(game);
+        return pairing;
+    }
+
+    /**
+     * Stops the worker threads once the scheduled games are finished
+     */
+    @Override
+    public void shutdown() {
+        pool.shutdown();
+    }
+}
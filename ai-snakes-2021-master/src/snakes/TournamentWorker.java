@@ -0,0 +1,102 @@
+package snakes;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+
+/**
+ * This class is responsible for the worker side of a {@link WorkerPool}: a JVM started by the
+ * tournament that plays the batches of pairings it reads from its standard input, one game at
+ * a time, and streams the outcome of every game to its standard output as soon as it is played.
+ * Everything the bots and the engine print goes to the standard error instead, which the
+ * tournament shares with its own console
+ */
+public class TournamentWorker {
+
+    /**
+     * Play batches of pairings until the tournament asks to stop
+     *
+     * @param number number of the worker, unique in the tournament
+     * @throws IOException if the pipes to the tournament break
+     * @throws InterruptedException if interrupted while warming a bot up
+     */
+    public static void serve(int number) throws IOException, InterruptedException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out)));
+        DataInputStream in = new DataInputStream(new BufferedInputStream(System.in));
+        System.setOut(System.err);
+        SnakeGame.setIdPrefix("game_w" + number);
+
+        BotLoader loader = new BotLoader();
+        HashMap<String, Class<? extends Bot>> classes = new HashMap<>();
+        HashSet<String> reported = new HashSet<>(); // quarantined bots the tournament knows of
+        while (true) {
+            int quarantined = in.readInt();
+            for (int i = 0; i < quarantined; i++) {
+                String bot = in.readUTF();
+                DecisionExecutor.quarantine(bot);
+                Pairing.quarantine(bot, in.readLong());
+                reported.add(bot);
+            }
+            int pairings = in.readInt();
+            if (pairings == 0)
+                break;
+
+            ArrayList<Pairing> batch = new ArrayList<>(pairings);
+            for (int i = 0; i < pairings; i++) {
+                Class<? extends Bot> bot0 = botClass(loader, classes, in.readUTF());
+                Class<? extends Bot> bot1 = botClass(loader, classes, in.readUTF());
+                Pairing pairing = new Pairing(0, bot0, 1, bot1, in.readLong());
+                pairing.order = in.readLong();
+                batch.add(pairing);
+            }
+
+            for (Pairing pairing : batch) {
+                try {
+                    TournamentScheduler.play(pairing);
+                } catch (ReflectiveOperationException e) {
+                    e.printStackTrace();
+                    pairing.recordCrash(); // a bot cannot be created
+                }
+                pairing.writeOutcome(out);
+
+                ArrayList<String> newlyQuarantined = new ArrayList<>();
+                for (String bot : DecisionExecutor.getQuarantinedBots())
+                    if (reported.add(bot))
+                        newlyQuarantined.add(bot);
+                out.writeInt(newlyQuarantined.size());
+                for (String bot : newlyQuarantined)
+                    out.writeUTF(bot);
+                out.flush();
+            }
+        }
+        GameLogger.drain();
+    }
+
+    /**
+     * @param loader  loader of bot classes
+     * @param classes bot classes loaded so far
+     * @param name    binary name of a bot class
+     * @return the bot class, loaded and warmed up once, or again if its jar in the bot directory was replaced
+     * @throws IOException if the class cannot be loaded
+     * @throws InterruptedException if interrupted while warming the bot up
+     */
+    private static Class<? extends Bot> botClass(BotLoader loader, HashMap<String, Class<? extends Bot>> classes,
+                                                 String name) throws IOException, InterruptedException {
+        Class<? extends Bot> bot = classes.get(name);
+        if (bot == null || !BotLoader.isCurrent(bot)) {
+            bot = loader.getBotClass(name);
+            if (bot == null)
+                throw new IOException("Cannot load bot " + name);
+            classes.put(name, bot);
+            WarmUp.warm(bot);
+        }
+        return bot;
+    }
+}
@@ -0,0 +1,102 @@
+package snakes;
+
+/**
+ * This class is responsible for reporting what the engine and the bots are doing to a profiler.
+ * <p>
+ * The engine calls {@link #TRACER} at the start and the end of every game step, bot decision
+ * and search iteration. This class does nothing; the {@code jfr} module overrides it with
+ * Java Flight Recorder events, and is used when it is on the class path and the JVM has JFR.
+ * A begin method returns null when nothing is recorded, and the caller then skips its own
+ * measurements, so tracing costs nothing when it is off
+ */
+public class Tracing {
+    private static final String JFR_TRACING = "snakes.jfr.JfrTracing";
+
+    /**
+     * Tracer used by the engine, chosen once when the class is loaded
+     */
+    public static final Tracing TRACER = load();
+
+    /**
+     * @return the JFR tracer if it can be loaded, otherwise a tracer that does nothing
+     */
+    private static Tracing load() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            return (Tracing) Class.forName(JFR_TRACING).getConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return new Tracing(); // no jfr module, or a JVM without JFR
+        }
+    }
+
+    /**
+     * Called when a game step starts
+     *
+     * @return the event of the step, or null if steps are not recorded
+     */
+    public Object beginStep() {
+        return null;
+    }
+
+    /**
+     * Called when a game step ends; durations are in nanoseconds
+     *
+     * @param event      the event returned by {@link #beginStep()}, not null
+     * @param game       id of the game
+     * @param step       number of the step, counting from 1
+     * @param snakes     number of snakes on the board at the start of the step
+     * @param decisions  time spent waiting for the decisions of the bots
+     * @param moves      time spent moving the snakes and looking for collisions
+     * @param apple      time spent placing the apple anew
+     * @param logging    time spent writing the game log and the replay
+     * @param slowestBot name of the bot that took the longest to decide, or null if no bot was asked
+     * @param slowest    time the slowest bot took to decide
+     * @param timeouts   number of bots that did not decide in time
+     */
+    public void endStep(Object event, String game, int step, int snakes, long decisions, long moves, long apple,
+                        long logging, String slowestBot, long slowest, int timeouts) {
+    }
+
+    /**
+     * Called on the thread of a bot when it starts a decision
+     *
+     * @return the event of the decision, or null if decisions are not recorded
+     */
+    public Object beginDecision() {
+        return null;
+    }
+
+    /**
+     * Called on the thread of a bot when it has taken a decision or failed to
+     *
+     * @param event     the event returned by {@link #beginDecision()}, not null
+     * @param game      id of the game
+     * @param step      number of the step the decision is for, counting from 1
+     * @param bot       name of the bot
+     * @param snake     number of the bot's snake
+     * @param direction the direction chosen, or null if the bot threw an exception
+     */
+    public void endDecision(Object event, String game, int step, String bot, int snake, Direction direction) {
+    }
+
+    /**
+     * Called by a searching bot when it starts an iteration of iterative deepening
+     *
+     * @return the event of the iteration, or null if iterations are not recorded
+     */
+    public Object beginSearch() {
+        return null;
+    }
+
+    /**
+     * Called by a searching bot when an iteration of iterative deepening ends
+     *
+     * @param event     the event returned by {@link #beginSearch()}, not null
+     * @param bot       name of the bot
+     * @param depth     depth of the iteration
+     * @param nodes     number of nodes searched in the iteration
+     * @param completed False - if the iteration was interrupted before it finished
+     */
+    public void endSearch(Object event, String bot, int depth, long nodes, boolean completed) {
+    }
+}
@@ -0,0 +1,25 @@
+package snakes;
+
+/**
+ * This interface may be implemented instead of {@link Bot} by a bot that keeps its own
+ * picture of the board: it is given a read-only {@link GameView}, which the game keeps
+ * up to date, instead of the snakes
+ */
+public interface ViewBot extends Bot {
+    /**
+     * Choose the step from a read-only view of the board; this is the method the game calls
+     * for a view bot
+     *
+     * @param view the board as seen by your snake
+     * @return Direction in which snake should crawl next game step
+     */
+    public Direction chooseDirection(final GameView view);
+
+    /**
+     * A view bot is never given the snakes
+     */
+    @Override
+    public default Direction chooseDirection(final Snake snake, final Snake opponent, final Coordinate mazeSize, final Coordinate apple) {
+        throw new UnsupportedOperationException(getClass().getName() + " is only given a GameView");
+    }
+}
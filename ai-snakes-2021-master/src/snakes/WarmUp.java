@@ -0,0 +1,274 @@
+package snakes;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class is responsible for warming up the bots before the scored games, so their first
+ * decisions do not run in the interpreter while the JIT compiler is still at work, which costs a
+ * searching bot depth and a slow bot its first move.
+ * <p>
+ * Every bot is asked for untimed decisions in rounds: in games against itself from the start
+ * position, played through {@link SnakeGame#applyMoves(Direction...)}, and in the positions of
+ * games recorded in logs/replays, if any, from a step taken at random. The rounds are kept short,
+ * as a searching bot takes most of its time limit for every decision, but a fast bot plays them
+ * again until they take {@value #ROUND_MILLIS} ms. The rounds go on until a round adds
+ * almost no time to the JIT compilation time reported by the {@link CompilationMXBean}, or until the number of rounds
+ * given by {@link #setRounds(int)}. The outcome of the warm-up games is not kept, and their seeds
+ * do not come from the tournament's seeds, so a tournament plays the same games with or without it.
+ * <p>
+ * The bots are created and released like those of the scored games, see {@link BotLoader#newBot(Class)}, so
+ * a bot with a class loader of its own is warmed up in the loaders its first games are played with
+ */
+public class WarmUp {
+    private static final int GAMES_PER_ROUND = 1; // games of a bot against itself in every round
+    private static final int GAME_STEPS = 32; // steps of a warm-up game
+    private static final int REPLAYS_PER_ROUND = 2; // recorded games replayed in every round
+    private static final int REPLAY_STEPS = 16; // steps of a recorded game the bot is asked to decide
+    private static final long ROUND_MILLIS = 200; // a round is played again until it has taken this long, for fast bots
+    private static final long SETTLED_COMPILATION_MS = 5; // compilation time of a round once the JIT compiler has settled
+    private static final int SETTLED_COMPILATION_SHARE = 100; // or the share of the round's time it may take at most, 1/N
+    private static final long DECISION_LIMIT = TimeUnit.SECONDS.toMillis(10); // a decision is untimed, but not endless
+
+    private static int rounds = 0; // most rounds of a warm-up, none to play without warm-up
+    private static Coordinate mazeSize = new Coordinate(14, 14);
+    private static Coordinate[] heads = {new Coordinate(2, 2), new Coordinate(11, 11)};
+    private static int snakeSize = 3;
+
+    private final Class<? extends Bot> botClass;
+    private final Random seeds;
+    private int decisions = 0;
+    private int replay = 0; // next replay to play, the replays are taken in turn
+
+    /**
+     * @param botClass class of the bot to warm up
+     */
+    private WarmUp(Class<? extends Bot> botClass) {
+        this.botClass = botClass;
+        this.seeds = new Random(botClass.getName().hashCode());
+    }
+
+    /**
+     * Warm the bots up before they play, see {@link #warm(Class)}
+     *
+     * @param rounds most rounds of untimed decisions, 0 to play without warm-up
+     */
+    public static void setRounds(int rounds) {
+        WarmUp.rounds = rounds;
+    }
+
+    /**
+     * Play the warm-up games on the board of the tournament
+     *
+     * @param mazeSize  size of the board
+     * @param heads     initial coordinate of the heads of the two snakes, their tails down and up
+     * @param snakeSize initial length of snakes
+     */
+    public static void setBoard(Coordinate mazeSize, Coordinate[] heads, int snakeSize) {
+        WarmUp.mazeSize = mazeSize;
+        WarmUp.heads = heads;
+        WarmUp.snakeSize = snakeSize;
+    }
+
+    /**
+     * @return True - if the bots are warmed up before they play
+     */
+    public static boolean isEnabled() {
+        return rounds > 0;
+    }
+
+    /**
+     * Ask a bot for untimed decisions until the JIT compilation settles, and report the
+     * compilation time of every round. A bot that fails during the warm-up is reported and
+     * left to fail again in its games
+     *
+     * @param botClass class of the bot
+     * @throws InterruptedException if interrupted while waiting for a decision
+     */
+    public static void warm(Class<? extends Bot> botClass) throws InterruptedException {
+        if (!isEnabled())
+            return;
+        CompilationMXBean compiler = ManagementFactory.getCompilationMXBean();
+        boolean monitored = compiler != null && compiler.isCompilationTimeMonitoringSupported();
+        WarmUp warmUp = new WarmUp(botClass);
+        long start = System.nanoTime();
+        long compilation = monitored ? compiler.getTotalCompilationTime() : 0;
+        int round = 0;
+        boolean settled = false;
+        try {
+            while (round < rounds && !settled) {
+                round++;
+                long roundStart = System.nanoTime();
+                warmUp.playRound();
+                if (!monitored)
+                    continue;
+                long total = compiler.getTotalCompilationTime();
+                long roundMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - roundStart);
+                System.out.println("Warm-up of " + botClass.getSimpleName() + ", round " + round + ": " + warmUp.decisions
+                        + " decisions, JIT compilation +" + (total - compilation) + " ms in " + roundMillis + " ms (" + total + " ms in total)");
+                settled = round > 1 && total - compilation <= Math.max(SETTLED_COMPILATION_MS, roundMillis / SETTLED_COMPILATION_SHARE);
+                compilation = total;
+            }
+        } catch (IllegalStateException e) {
+            System.out.println("Warm-up of " + botClass.getSimpleName() + " stopped: " + e.getMessage());
+            if (DecisionExecutor.isQuarantined(botClass))
+                Pairing.quarantine(botClass.getName(), -1); // before any game it would play
+            return;
+        }
+        float time_taken = (float) (System.nanoTime() - start) / 1e9f;
+        System.out.println(botClass.getSimpleName() + " warmed up in " + round + " rounds, " + warmUp.decisions
+                + " decisions, " + time_taken + " s" + (settled ? "" : monitored ? ", JIT compilation not settled" : ", JIT compilation time not monitored"));
+    }
+
+    /**
+     * Play warm-up games and replays for at least {@link #ROUND_MILLIS}
+     *
+     * @throws InterruptedException if interrupted while waiting for a decision
+     */
+    private void playRound() throws InterruptedException {
+        long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ROUND_MILLIS);
+        do {
+            playGamesAndReplays();
+        } while (System.nanoTime() - end < 0);
+    }
+
+    /**
+     * Play the warm-up games and replays of a round once
+     *
+     * @throws InterruptedException if interrupted while waiting for a decision
+     */
+    private void playGamesAndReplays() throws InterruptedException {
+        for (int i = 0; i < GAMES_PER_ROUND; i++)
+            playGame();
+
+        File[] files = ReplayWriter.REPLAY_DIRECTORY.listFiles();
+        if (files == null || files.length == 0)
+            return;
+        Arrays.sort(files);
+        for (int i = 0; i < REPLAYS_PER_ROUND && i < files.length; i++) {
+            ReplayReader recorded;
+            try {
+                recorded = new ReplayReader(files[replay++ % files.length]);
+            } catch (IOException e) {
+                continue; // not a replay, or one still being written
+            }
+            playReplay(recorded);
+        }
+    }
+
+    /**
+     * Play a game of the bot against itself from the start position of the tournament's games
+     *
+     * @throws InterruptedException if interrupted while waiting for a decision
+     */
+    private void playGame() throws InterruptedException {
+        Direction[] tailDirs = {Direction.DOWN, Direction.UP};
+        String[] names = {botClass.getSimpleName(), botClass.getSimpleName()};
+        SnakeGame game = new SnakeGame(mazeSize, heads, tailDirs, snakeSize, null, names, seeds.nextLong());
+        List<DecisionExecutor> executors = new ArrayList<>();
+        List<Bot> bots = new ArrayList<>();
+        SnakesRunner[] runners = new SnakesRunner[heads.length];
+        try {
+            for (int i = 0; i < heads.length; i++) {
+                Bot bot = newBot();
+                bots.add(bot);
+                runners[i] = game.runner(i, bot);
+                executors.add(new DecisionExecutor(runners[i], bot));
+            }
+            Direction[] moves = new Direction[heads.length];
+            boolean running = true;
+            for (int step = 0; running && step < GAME_STEPS; step++) {
+                for (int i = 0; i < heads.length; i++)
+                    moves[i] = game.onBoard[i] ? decide(executors.get(i), runners[i]) : null;
+                running = game.applyMoves(moves);
+            }
+        } finally {
+            for (DecisionExecutor executor : executors)
+                executor.shutdown();
+            for (Bot bot : bots)
+                BotLoader.release(bot);
+        }
+    }
+
+    /**
+     * Ask the bot for its decisions in the positions of a recorded game, for every snake,
+     * while the snakes play the recorded moves. A {@link StepListener} is asked from the
+     * start of the game, as it must not miss a step
+     *
+     * @param recorded recorded game
+     * @throws InterruptedException if interrupted while waiting for a decision
+     */
+    private void playReplay(ReplayReader recorded) throws InterruptedException {
+        SnakeGame game = new SnakeGame(recorded.mazeSize, recorded.heads, recorded.tailDirs, recorded.snakeSize, null,
+                recorded.names, recorded.seed);
+        List<DecisionExecutor> executors = new ArrayList<>();
+        List<Bot> bots = new ArrayList<>();
+        SnakesRunner[] runners = new SnakesRunner[recorded.snakes];
+        try {
+            for (int i = 0; i < recorded.snakes; i++) {
+                Bot bot = newBot();
+                bots.add(bot);
+                runners[i] = game.runner(i, bot);
+                executors.add(new DecisionExecutor(runners[i], bot));
+            }
+            int first = 0; // first step the bot is asked to decide
+            if (!StepListener.class.isAssignableFrom(botClass) && recorded.steps > REPLAY_STEPS)
+                first = seeds.nextInt(recorded.steps - REPLAY_STEPS);
+            Direction[] moves = new Direction[recorded.snakes];
+            boolean running = true;
+            for (int step = 0; running && step < recorded.steps && step < first + REPLAY_STEPS; step++) {
+                for (int i = 0; i < recorded.snakes; i++) {
+                    if (recorded.isEliminated(step, i))
+                        game.eliminate(i);
+                    if (game.onBoard[i] && step >= first)
+                        decide(executors.get(i), runners[i]);
+                    moves[i] = recorded.getMove(step, i);
+                }
+                running = game.applyMoves(moves);
+            }
+        } finally {
+            for (DecisionExecutor executor : executors)
+                executor.shutdown();
+            for (Bot bot : bots)
+                BotLoader.release(bot);
+        }
+    }
+
+    /**
+     * @return a new instance of the bot, see {@link BotLoader#newBot(Class)}
+     */
+    private Bot newBot() {
+        try {
+            return BotLoader.newBot(botClass);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("cannot create the bot: " + e);
+        }
+    }
+
+    /**
+     * Ask the bot for a decision and wait for it, within {@link #DECISION_LIMIT}
+     *
+     * @param executor executor of the bot
+     * @param runner   runner of the bot's snake
+     * @return the bot's decision
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private Direction decide(DecisionExecutor executor, SnakesRunner runner) throws InterruptedException {
+        executor.request();
+        if (!executor.await(System.currentTimeMillis() + DECISION_LIMIT))
+            throw new IllegalStateException("no decision within " + DECISION_LIMIT + " ms");
+        if (executor.failure != null)
+            throw new IllegalStateException("the bot threw " + executor.failure);
+        if (runner.chosen_direction == null)
+            throw new IllegalStateException("the bot chose no direction");
+        decisions++;
+        return runner.chosen_direction;
+    }
+}
@@ -0,0 +1,278 @@
+package snakes;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Plays tournament games in worker JVMs, one game at a time in each, so bots do not share
+ * garbage collection pauses and JIT compiler threads, and a bot that crashes its JVM does not
+ * end the tournament.
+ * <p>
+ * Every worker is a {@link TournamentWorker} started with {@link ProcessBuilder} and kept for
+ * the whole tournament. The pairings are split into batches, which idle workers take in turn
+ * and receive through their standard input; the outcome of every game is read from the
+ * worker's standard output as soon as it is played. As with {@link TournamentScheduler},
+ * the results are handed out in the order the pairings were scheduled.
+ * <p>
+ * If a worker dies, or sends an outcome that cannot be read, it is replaced, and the games of
+ * its batch that were not played are played again one by one; only the game it was playing
+ * counts that the worker died. A worker that takes longer for
+ * a game than the game can last is killed by a watchdog, and replaced the same way. A game
+ * during which a worker died twice is recorded as lost by both players, see {@link Pairing#recordCrash()}
+ */
+public class WorkerPool implements GameScheduler {
+    private static final int MAX_BATCH_SIZE = 8;
+    private static final int MAX_ATTEMPTS = 2; // workers that may die playing the same game
+    private static final long EXIT_TIMEOUT = 10; // time a worker gets to finish its logs and exit in seconds
+    private static final List<Job> STOP = Collections.emptyList();
+
+    private final int workers;
+    private final List<String> settings;
+    private final long gameTimeout; // time in millis a worker may take for a game before it is killed
+    private final ScheduledExecutorService watchdog;
+    private final LinkedBlockingDeque<List<Job>> batches = new LinkedBlockingDeque<>();
+    private final Thread[] dispatchers;
+    private final AtomicInteger started = new AtomicInteger(); // worker JVMs started so far
+
+    /**
+     * A pairing handed to the workers and its outcome
+     */
+    private static class Job {
+        final Pairing pairing;
+        final CompletableFuture<Pairing> result = new CompletableFuture<>();
+        int attempts = 0;
+
+        Job(Pairing pairing) {
+            this.pairing = pairing;
+        }
+    }
+
+    /**
+     * Creates the pool; the worker JVMs are started when they get their first batch
+     * @param workers     number of worker JVMs, each playing one game at a time
+     * @param settings    options of {@link SnakesUIMain} that the workers play the games with
+     * @param gameTimeout time in millis a worker may take for a game, including loading and warming up its bots
+     */
+    public WorkerPool(int workers, List<String> settings, long gameTimeout) {
+        this.workers = workers;
+        this.settings = settings;
+        this.gameTimeout = gameTimeout;
+        this.watchdog = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "worker-watchdog");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        this.dispatchers = new Thread[workers];
+        for (int i = 0; i < workers; i++) {
+            dispatchers[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    dispatch();
+                }
+            }, "worker-dispatcher-" + i);
+            dispatchers[i].start();
+        }
+    }
+
+    @Override
+    public List<Future<Pairing>> submit(List<Pairing> schedule) {
+        List<Future<Pairing>> results = new ArrayList<>(schedule.size());
+        int batchSize = Math.max(1, Math.min(MAX_BATCH_SIZE, schedule.size() / (4 * workers)));
+        List<Job> batch = new ArrayList<>();
+        for (Pairing pairing : schedule) {
+            Job job = new Job(pairing);
+            results.add(job.result);
+            batch.add(job);
+            if (batch.size() == batchSize) {
+                batches.add(batch);
+                batch = new ArrayList<>();
+            }
+        }
+        if (!batch.isEmpty())
+            batches.add(batch);
+        return results;
+    }
+
+    /**
+     * Stops the workers once the scheduled games are finished, and waits for them to exit
+     */
+    @Override
+    public void shutdown() {
+        for (int i = 0; i < workers; i++)
+            batches.add(STOP);
+        for (Thread dispatcher : dispatchers) {
+            try {
+                dispatcher.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        watchdog.shutdownNow();
+    }
+
+    /**
+     * Loop of a dispatcher thread: hands batches to its worker and reads their outcomes,
+     * replacing the worker when it dies
+     */
+    private void dispatch() {
+        Process process = null;
+        DataOutputStream out = null;
+        DataInputStream in = null;
+        int number = 0;
+        while (true) {
+            List<Job> batch;
+            try {
+                batch = batches.take();
+            } catch (InterruptedException e) {
+                break;
+            }
+            if (batch == STOP)
+                break;
+
+            int played = 0;
+            try {
+                if (process == null) {
+                    number = started.incrementAndGet();
+                    process = start(number);
+                    out = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+                    in = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+                }
+                writeQuarantined(out);
+                out.writeInt(batch.size());
+                for (Job job : batch) {
+                    out.writeUTF(job.pairing.bot0.getName());
+                    out.writeUTF(job.pairing.bot1.getName());
+                    out.writeLong(job.pairing.seed);
+                    out.writeLong(job.pairing.order);
+                }
+                out.flush();
+
+                for (Job job : batch) {
+                    ScheduledFuture<?> kill = watch(process, number, job);
+                    try {
+                        job.pairing.readOutcome(in);
+                        int quarantined = in.readInt();
+                        for (int i = 0; i < quarantined; i++) {
+                            String bot = in.readUTF();
+                            DecisionExecutor.quarantine(bot);
+                            Pairing.quarantine(bot, job.pairing.order);
+                        }
+                    } finally {
+                        kill.cancel(false);
+                    }
+                    played++;
+                    job.result.complete(job.pairing);
+                }
+            } catch (IOException | RuntimeException e) { // a garbled outcome is a crash of the worker as well
+                System.out.println("Worker " + number + " died: " + e);
+                if (process != null)
+                    process.destroyForcibly();
+                process = null;
+                // only the game being played counts the crash, the games queued behind it are played again as they are
+                List<Job> unplayed = new ArrayList<>(batch.subList(played, batch.size()));
+                Job job = unplayed.get(0);
+                if (++job.attempts >= MAX_ATTEMPTS) {
+                    System.out.println("Workers died twice playing " + job.pairing.bot0.getSimpleName() + " vs "
+                            + job.pairing.bot1.getSimpleName() + ", seed: " + job.pairing.seed);
+                    job.pairing.recordCrash();
+                    job.result.complete(job.pairing);
+                    unplayed.remove(0);
+                }
+                for (int i = unplayed.size() - 1; i >= 0; i--) // in the order they were scheduled
+                    batches.addFirst(Collections.singletonList(unplayed.get(i)));
+            }
+        }
+        if (process != null)
+            stop(process, out);
+    }
+
+    /**
+     * Kills a worker if it has not sent the outcome of a game in time, so its dispatcher,
+     * blocked reading the outcome, sees the worker die
+     * @param process the worker's process
+     * @param number  number of the worker
+     * @param job     the game the worker is playing
+     * @return the pending kill, to be cancelled once the outcome is read
+     */
+    private ScheduledFuture<?> watch(final Process process, final int number, final Job job) {
+        return watchdog.schedule(new Runnable() {
+            @Override
+            public void run() {
+                System.out.println("Worker " + number + " took more than " + gameTimeout + " ms for " + job.pairing.bot0.getSimpleName()
+                        + " vs " + job.pairing.bot1.getSimpleName() + ", seed: " + job.pairing.seed + ", killing it");
+                process.destroyForcibly();
+            }
+        }, gameTimeout, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Starts a worker JVM with the class path of this one
+     * @param number number of the worker, unique in the tournament
+     * @return the worker's process
+     * @throws IOException if the JVM cannot be started
+     */
+    private Process start(int number) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(SnakesUIMain.class.getName());
+        command.add("--worker");
+        command.add(Integer.toString(number));
+        command.addAll(settings);
+        return new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+    }
+
+    /**
+     * Tells a worker which bots are quarantined, and in which game, so it forfeits the later games
+     * of the schedule, see {@link Pairing#isForfeit()}
+     * @param out standard input of the worker
+     * @throws IOException if the worker cannot be written to
+     */
+    private static void writeQuarantined(DataOutputStream out) throws IOException {
+        Map<String, Long> quarantined = Pairing.getQuarantines();
+        out.writeInt(quarantined.size());
+        for (Map.Entry<String, Long> e : quarantined.entrySet()) {
+            out.writeUTF(e.getKey());
+            out.writeLong(e.getValue());
+        }
+    }
+
+    /**
+     * Asks a worker to exit and waits until it does, killing it if it takes too long
+     * @param process the worker's process
+     * @param out     standard input of the worker
+     */
+    private static void stop(Process process, DataOutputStream out) {
+        try {
+            writeQuarantined(out);
+            out.writeInt(0);
+            out.close();
+            if (!process.waitFor(EXIT_TIMEOUT, TimeUnit.SECONDS))
+                process.destroyForcibly();
+        } catch (IOException | InterruptedException e) {
+            process.destroyForcibly();
+        }
+    }
+}